@@ -0,0 +1,41 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.controller.AgeDistribution;
+import study.querydsl.controller.MemberDataGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 인메모리 H2에 JPA 계층만 띄우고 (웹 서버 X) 회원 데이터를 채워 넣습니다.
+ */
+public final class BenchmarkContext {
+    public static final int TEAM_COUNT = 10;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param properties 추가로 덮어쓸 설정 (예: "--member.search.parallel-count.enabled=true")
+     */
+    public static ConfigurableApplicationContext start(int memberCount, String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.profiles.active=bench", //local 프로필의 InitMember가 뜨지 않도록
+                "--spring.datasource.url=jdbc:h2:mem:bench",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--member.search.cache.enabled=false")); //쿼리 자체를 재야 하니 검색 결과 캐시는 끔
+        args.addAll(Arrays.asList(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+        context.getBean(MemberDataGenerator.class).generate(memberCount, TEAM_COUNT, AgeDistribution.UNIFORM);
+        return context;
+    }
+}
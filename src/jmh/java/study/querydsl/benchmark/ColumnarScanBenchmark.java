@@ -0,0 +1,89 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량 조회: List<MemberTeamDto> vs MemberColumns
+ * 시간은 JMH, 할당량은 -PjmhProfilers=gc (gc.alloc.rate.norm),
+ * 결과를 들고 있는 메모리 크기는 setUp에서 JOL로 재서 출력합니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnarScanBenchmark {
+
+    @Param({"300000"})
+    public int datasetSize;
+
+    @Param({"1000"})
+    public int fetchSize;
+
+    private ConfigurableApplicationContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private final MemberSearchCondition condition = new MemberSearchCondition();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(datasetSize);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+        long rows = GraphLayout.parseInstance(memberJpaRepository.search(condition)).totalSize();
+        long columns = GraphLayout.parseInstance(memberJpaRepository.searchColumns(condition, fetchSize)).totalSize();
+        System.out.printf("%n[footprint] %d rows: List<MemberTeamDto> %,d bytes, MemberColumns %,d bytes (%.1fx)%n",
+                datasetSize, rows, columns, (double) rows / columns);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> rows() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public MemberColumns columns() {
+        return memberJpaRepository.searchColumns(condition, fetchSize);
+    }
+
+    /**
+     * 읽는 쪽까지 - 나이 합계
+     */
+    @Benchmark
+    public long rowsAgeSum() {
+        long sum = 0;
+        for (MemberTeamDto dto : memberJpaRepository.search(condition)) {
+            sum += dto.getAge();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long columnsAgeSum() {
+        long sum = 0;
+        MemberColumns.Cursor cursor = memberJpaRepository.searchColumns(condition, fetchSize).cursor();
+        while (cursor.next()) {
+            sum += cursor.age();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,65 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v3/members 처리량: JPA(H2) vs 메모리 검색 엔진 (member.search.memory.enabled)
+ * 대시보드처럼 여러 요청이 동시에 들어오는 상황이라 스레드 4개로 잽니다. (-t로 바꿀 수 있음)
+ * 두번째 페이지라 JPA 쪽은 count 쿼리도 항상 나갑니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class MemorySearchBenchmark {
+
+    @Param({"100000"})
+    public int datasetSize;
+
+    @Param({"false", "true"})
+    public boolean memory;
+
+    @Param({"ALL", "TEAM", "NARROW", "USERNAME"})
+    public Selectivity selectivity;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+    private final PageRequest pageRequest = PageRequest.of(1, 20);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(datasetSize,
+                "--member.search.memory.enabled=" + memory,
+                "--member.search.coalesce.enabled=false"); //동시 요청을 합치지 않고 하나하나 실행
+        memberRepository = context.getBean(MemberRepository.class);
+        condition = selectivity.condition();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.controller.MemberPageCodec;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.PageResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v2, /v3 응답 직렬화: PageImpl JSON(지금) vs 가벼운 봉투 JSON vs 바이너리(application/x-member-page)
+ * DB 없이 직렬화만 잽니다. 응답 크기(bytes)는 setUp에서 출력합니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PageEncodingBenchmark {
+
+    @Param({"20", "1000"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Page<MemberTeamDto> page;
+    private PageResponse<MemberTeamDto> lean;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<MemberTeamDto> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            long teamId = i % BenchmarkContext.TEAM_COUNT + 1;
+            content.add(new MemberTeamDto((long) i + 1, "member" + i, i % 100, teamId, "team" + teamId));
+        }
+        page = new PageImpl<>(content, PageRequest.of(3, pageSize), 100_000);
+        lean = new PageResponse<>(page);
+
+        System.out.printf("%n[bytes] pageSize %d: PageImpl JSON %,d, PageResponse JSON %,d, binary %,d%n",
+                pageSize, pageImplJson().length, leanJson().length, binary().size());
+    }
+
+    @Benchmark
+    public byte[] pageImplJson() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] leanJson() throws IOException {
+        return objectMapper.writeValueAsBytes(lean);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream binary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        MemberPageCodec.write(new PageResponse<>(page), out);
+        return out;
+    }
+}
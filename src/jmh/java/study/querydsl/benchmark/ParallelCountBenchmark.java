@@ -0,0 +1,60 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchPageComplex - count를 순서대로 vs 동시에 (member.search.parallel-count.enabled)
+ * 두번째 페이지라 count가 항상 필요한 경우의 응답시간을 비교합니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelCountBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int datasetSize;
+
+    @Param({"TEAM", "NARROW"})
+    public Selectivity selectivity;
+
+    @Param({"false", "true"})
+    public boolean parallelCount;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest = PageRequest.of(1, 20);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(datasetSize, "--member.search.parallel-count.enabled=" + parallelCount);
+        memberRepository = context.getBean(MemberRepository.class);
+        condition = selectivity.condition();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.projection.FastProjections;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * DB 없이 행(Object[]) -> DTO 변환 비용만 비교합니다.
+ * 할당량은 -PjmhProfilers=gc 로 (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionMappingBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private Object[][] data;
+    private FactoryExpression<MemberDto> bean;
+    private FactoryExpression<MemberDto> fields;
+    private FactoryExpression<MemberDto> constructor;
+    private FactoryExpression<MemberDto> queryProjection;
+    private FactoryExpression<MemberDto> fastBean;
+    private FactoryExpression<MemberDto> fastFields;
+
+    @Setup
+    public void setUp() {
+        data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{"member" + i, i % 100};
+        }
+        bean = Projections.bean(MemberDto.class, member.username, member.age);
+        fields = Projections.fields(MemberDto.class, member.username, member.age);
+        constructor = Projections.constructor(MemberDto.class, member.username, member.age);
+        queryProjection = new QMemberDto(member.username, member.age);
+        fastBean = FastProjections.bean(MemberDto.class, member.username, member.age);
+        fastFields = FastProjections.fields(MemberDto.class, member.username, member.age);
+    }
+
+    @Benchmark
+    public void bean(Blackhole blackhole) {
+        map(bean, blackhole);
+    }
+
+    @Benchmark
+    public void fields(Blackhole blackhole) {
+        map(fields, blackhole);
+    }
+
+    @Benchmark
+    public void constructor(Blackhole blackhole) {
+        map(constructor, blackhole);
+    }
+
+    @Benchmark
+    public void queryProjection(Blackhole blackhole) {
+        map(queryProjection, blackhole);
+    }
+
+    @Benchmark
+    public void fastBean(Blackhole blackhole) {
+        map(fastBean, blackhole);
+    }
+
+    @Benchmark
+    public void fastFields(Blackhole blackhole) {
+        map(fastFields, blackhole);
+    }
+
+    private void map(FactoryExpression<MemberDto> projection, Blackhole blackhole) {
+        for (Object[] row : data) {
+            blackhole.consume(projection.newInstance(row));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.benchmark;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 검색 조건이 골라내는 비율
+ * 데이터는 팀 10개, 나이 0 ~ 99 균등 분포로 생성됩니다. (BenchmarkContext)
+ */
+public enum Selectivity {
+    /**
+     * 조건 없음 - 전체
+     */
+    ALL,
+    /**
+     * 팀 하나 - 약 10%
+     */
+    TEAM,
+    /**
+     * 팀 하나 + 나이 30 ~ 34 - 약 0.5%
+     */
+    NARROW,
+    /**
+     * 회원명 일치 - 1건
+     */
+    USERNAME;
+
+    public MemberSearchCondition condition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        switch (this) {
+            case TEAM:
+                condition.setTeamName("teamA");
+                break;
+            case NARROW:
+                condition.setTeamName("teamA");
+                condition.setAgeGoe(30);
+                condition.setAgeLoe(34);
+                break;
+            case USERNAME:
+                condition.setUsername("member7");
+                break;
+            default:
+                break;
+        }
+        return condition;
+    }
+}
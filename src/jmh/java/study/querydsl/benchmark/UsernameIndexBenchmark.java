@@ -0,0 +1,77 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.UsernameIndex;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원명 PREFIX/CONTAINS 검색: 인덱스 후보 id in (...) vs like 풀스캔
+ * 회원명은 member0 ~ member{datasetSize-1} 이라 digits가 짧을수록 후보가 많아집니다.
+ * 후보가 max-candidates를 넘거나 CONTAINS 검색어가 3글자 미만이면 인덱스를 켜도 like로 찾습니다.
+ * 후보 개수는 setUp에서 출력합니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UsernameIndexBenchmark {
+
+    @Param({"300000"})
+    public int datasetSize;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    @Param({"PREFIX", "CONTAINS"})
+    public UsernameMatch match;
+
+    @Param({"12345", "1234", "123"})
+    public String digits;
+
+    @Param({"1000"})
+    public int maxCandidates;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private final MemberSearchCondition condition = new MemberSearchCondition();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(datasetSize,
+                "--member.search.username-index.enabled=" + indexed,
+                "--member.search.username-index.max-candidates=" + maxCandidates);
+        memberRepository = context.getBean(MemberRepository.class);
+        condition.setUsername(match == UsernameMatch.PREFIX ? "member" + digits : digits);
+        condition.setUsernameMatch(match);
+
+        Optional<Set<Long>> candidates = context.getBean(UsernameIndex.class).candidates(match, condition.getUsername());
+        System.out.printf("%n[candidates] %s '%s': %s, result %d rows%n", match, condition.getUsername(),
+                candidates.map(ids -> ids.size() + " ids").orElse("like scan"), memberRepository.search(condition).size());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(condition);
+    }
+}
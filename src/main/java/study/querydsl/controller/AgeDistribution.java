@@ -0,0 +1,41 @@
+package study.querydsl.controller;
+
+import java.util.Random;
+
+/**
+ * 테스트 데이터 회원 나이 분포
+ */
+public enum AgeDistribution {
+    /**
+     * 0, 1, 2 ... 99, 0, 1 ... 순서대로 (기존 초기 데이터와 같음)
+     */
+    SEQUENTIAL {
+        @Override
+        int next(long index, Random random) {
+            return (int) (index % (MAX_AGE + 1));
+        }
+    },
+    /**
+     * 0 ~ 99 균등 분포
+     */
+    UNIFORM {
+        @Override
+        int next(long index, Random random) {
+            return random.nextInt(MAX_AGE + 1);
+        }
+    },
+    /**
+     * 평균 40, 표준편차 15인 정규 분포 (0 ~ 99로 자름)
+     */
+    NORMAL {
+        @Override
+        int next(long index, Random random) {
+            int age = (int) Math.round(40 + random.nextGaussian() * 15);
+            return Math.max(0, Math.min(MAX_AGE, age));
+        }
+    };
+
+    private static final int MAX_AGE = 99;
+
+    abstract int next(long index, Random random);
+}
@@ -0,0 +1,26 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.datasource.DataSourceTargets;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 대상(primary, 복제본)별 커넥션 사용량 (관리자용)
+ * 라우팅이 꺼져있으면 빈 결과입니다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class DataSourceController {
+    private final ObjectProvider<DataSourceTargets> targets;
+
+    @GetMapping("/admin/datasources")
+    public Map<String, Map<String, Object>> usage() {
+        DataSourceTargets dataSourceTargets = targets.getIfAvailable();
+        return dataSourceTargets == null ? Collections.emptyMap() : dataSourceTargets.usage();
+    }
+}
@@ -0,0 +1,36 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitoring.IndexAdvice;
+import study.querydsl.monitoring.IndexAdvisor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 검색 조건 모양별 실행계획, 인덱스 제안 (관리자용)
+ * /admin/index-advice?fullScanOnly=true 면 회원 테이블을 전부 읽는 모양만
+ */
+@RestController
+@RequiredArgsConstructor
+public class IndexAdvisorController {
+    private final IndexAdvisor indexAdvisor;
+
+    @GetMapping("/admin/index-advice")
+    public List<IndexAdvice> advice(@RequestParam(defaultValue = "false") boolean fullScanOnly) {
+        List<IndexAdvice> advice = indexAdvisor.advise();
+        if (!fullScanOnly) {
+            return advice;
+        }
+        return advice.stream().filter(IndexAdvice::isFullScan).collect(Collectors.toList());
+    }
+
+    @DeleteMapping("/admin/index-advice")
+    public void clear() {
+        indexAdvisor.clear();
+    }
+}
@@ -2,16 +2,11 @@ package study.querydsl.controller;
 
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.ComponentScan;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 @Profile("local")
 @Component
 @RequiredArgsConstructor
@@ -22,20 +17,20 @@ public class InitMember {
         initMemberService.init();
     }
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService {
-        @PersistenceContext
-        EntityManager em;
-        @Transactional
+        private final MemberDataGenerator memberDataGenerator;
+
+        @Value("${init.member.count:100}")
+        private long memberCount;
+        @Value("${init.member.team-count:2}")
+        private int teamCount;
+        @Value("${init.member.age-distribution:SEQUENTIAL}")
+        private AgeDistribution ageDistribution;
+
+        //트랜잭션은 생성기가 chunk 단위로 나눠서 겁니다.
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
+            memberDataGenerator.generate(memberCount, teamCount, ageDistribution);
         }
     }
 }
-
@@ -1,36 +1,162 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.SliceResponse;
+import study.querydsl.dto.StreamedPage;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSort;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    private static final int MAX_CURSOR_PAGE_SIZE = 2000;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${member.stream.fetch-size:500}")
+    private int streamFetchSize;
 
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
         return memberJpaRepository.search(condition);
     }
+    /**
+     * v1과 같은 조회를 한 줄에 한 건씩(NDJSON) 흘려보냅니다.
+     * 전체 결과를 List로 만들지 않기 때문에 조건이 없어도 힙 사용량이 일정합니다.
+     */
+    @GetMapping("/v1/members/stream")
+    public ResponseEntity<StreamingResponseBody> streamMemberV1(MemberSearchCondition condition){
+        StreamingResponseBody body = out -> memberJpaRepository.searchStream(condition, streamFetchSize,
+                dto -> writeLine(out, dto));
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageSimple(condition,pageable);
     }
+    /**
+     * 무한 스크롤용 - count 쿼리 없이 다음 페이지 유무만 내려줍니다.
+     */
+    @GetMapping("/v2/members/slice")
+    public SliceResponse<MemberTeamDto> searchMemberV2Slice(MemberSearchCondition condition, Pageable pageable){
+        return new SliceResponse<>(memberRepository.searchSlice(condition, pageable));
+    }
+    /**
+     * sort는 id, username, age, team.name만 받습니다. (MemberSort) ex) ?sort=age,desc&sort=team.name
+     */
     @GetMapping("/v3/members")
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+        checkSort(pageable);
         return memberRepository.searchPageComplex(condition,pageable);
     }
+    /**
+     * v3와 같은 페이지를 조회 커서에서 읽는 대로 JsonGenerator로 바로 씁니다.
+     * Page를 만들지 않으니 요청당 힙에 올라오는 것은 한 행뿐이고, total/hasNext는 내용 뒤에 붙습니다.
+     */
+    @GetMapping("/v3/members/stream")
+    public ResponseEntity<StreamingResponseBody> streamMemberV3(MemberSearchCondition condition, Pageable pageable){
+        checkSort(pageable); //응답을 쓰기 시작한 뒤에는 400을 줄 수 없으니 미리
+        // 행마다 flush하면 행마다 청크가 나가니 flush는 출력 버퍼에 맡김
+        ObjectWriter rowWriter = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("content");
+                StreamedPage page = memberRepository.searchPageStream(condition, pageable, streamFetchSize,
+                        dto -> writeValue(rowWriter, generator, dto));
+                generator.writeEndArray();
+                generator.writeNumberField("page", page.getPage());
+                generator.writeNumberField("size", page.getSize());
+                generator.writeNumberField("totalElements", page.getTotalElements());
+                generator.writeBooleanField("hasNext", page.isHasNext());
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    /**
+     * 커서 기반 페이징 - 응답의 nextCursor를 그대로 다음 요청의 cursor로 넘기면 됩니다.
+     */
+    @GetMapping("/v4/members")
+    public MemberCursorPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int size){
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size는 1 ~ " + MAX_CURSOR_PAGE_SIZE + " 사이여야 합니다.");
+        }
+        return memberRepository.searchByCursor(condition, decodeCursor(cursor), size);
+    }
+
+    private void writeLine(OutputStream out, MemberTeamDto dto) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeValue(ObjectWriter writer, JsonGenerator generator, MemberTeamDto dto) {
+        try {
+            writer.writeValue(generator, dto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkSort(Pageable pageable) {
+        try {
+            MemberSort.normalize(pageable.getSort());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private MemberCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
 
 
 
@@ -0,0 +1,99 @@
+package study.querydsl.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 부하 테스트용 대량 회원 데이터 생성기
+ * - chunkSize 건마다 트랜잭션을 나눠서 커밋합니다. (트랜잭션 하나에 천만건을 넣지 않도록)
+ * - JDBC batch size 건마다 flush()/clear() 해서 영속성 컨텍스트가 커지지 않게 합니다.
+ * - 식별자는 pooled-lo 시퀀스로 미리 할당받기 때문에 insert마다 시퀀스를 호출하지 않습니다.
+ */
+@Slf4j
+@Component
+public class MemberDataGenerator {
+    private static final long RANDOM_SEED = 42L; //매번 같은 데이터가 나오도록
+
+    @PersistenceContext
+    EntityManager em;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int batchSize;
+
+    public MemberDataGenerator(PlatformTransactionManager transactionManager,
+                               @Value("${init.member.chunk-size:10000}") int chunkSize,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1000}") int batchSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return 초당 insert한 회원 수
+     */
+    public double generate(long memberCount, int teamCount, AgeDistribution ageDistribution) {
+        long start = System.nanoTime();
+        List<Long> teamIds = transactionTemplate.execute(status -> createTeams(teamCount));
+
+        Random random = new Random(RANDOM_SEED);
+        for (long from = 0; from < memberCount; from += chunkSize) {
+            long chunkFrom = from;
+            long chunkTo = Math.min(from + chunkSize, memberCount);
+            transactionTemplate.execute(status -> {
+                createMembers(chunkFrom, chunkTo, teamIds, ageDistribution, random);
+                return null;
+            });
+            log.debug("member seed progress {}/{}", chunkTo, memberCount);
+        }
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        double rowsPerSecond = memberCount / seconds;
+        log.info("member seed done: members={}, teams={}, ages={}, elapsed={}s, {} rows/s",
+                memberCount, teamCount, ageDistribution, String.format("%.2f", seconds), String.format("%.0f", rowsPerSecond));
+        return rowsPerSecond;
+    }
+
+    private List<Long> createTeams(int teamCount) {
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i, teamCount));
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        return teamIds;
+    }
+
+    private void createMembers(long from, long to, List<Long> teamIds, AgeDistribution ageDistribution, Random random) {
+        for (long i = from; i < to; i++) {
+            Member member = new Member("member" + i, ageDistribution.next(i, random));
+            if (!teamIds.isEmpty()) {
+                //changeTeam()은 team.members 컬렉션을 초기화하므로 프록시만 연결합니다.
+                member.setTeam(em.getReference(Team.class, teamIds.get((int) (i % teamIds.size()))));
+            }
+            em.persist(member);
+            if ((i - from + 1) % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+
+    /**
+     * 팀이 26개 이하면 기존처럼 teamA, teamB ... 로 이름을 짓습니다.
+     */
+    private static String teamName(int index, int teamCount) {
+        return teamCount <= 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.controller;
+
+import org.springframework.http.MediaType;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.PageResponse;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원 페이지 바이너리 포맷 (Accept: application/x-member-page)
+ * 필드 이름 없이 순서대로, 숫자는 고정 길이(big-endian), 문자열은 길이 + modified UTF-8(DataOutput.writeUTF)
+ *
+ * <pre>
+ * byte   버전 (1)
+ * int    page, int size, long totalElements
+ * int    팀 이름 수, 팀 이름들        - 페이지 안에서 팀 이름은 한 번만
+ * int    행 수
+ * 행마다: long memberId, 문자열? username, int age, long teamId (0 = 팀 없음), int 팀 이름 번호 (-1 = 없음)
+ * </pre>
+ * 문자열?는 boolean(있는지) 뒤에 문자열입니다.
+ */
+public final class MemberPageCodec {
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-member-page");
+    private static final byte VERSION = 1;
+    private static final long NO_TEAM = 0L;
+
+    private MemberPageCodec() {
+    }
+
+    public static void write(PageResponse<MemberTeamDto> page, OutputStream out) throws IOException {
+        List<MemberTeamDto> content = page.getContent();
+        Map<String, Integer> teamNames = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (MemberTeamDto dto : content) {
+            if (dto.getTeamName() != null && !teamNames.containsKey(dto.getTeamName())) {
+                teamNames.put(dto.getTeamName(), dictionary.size());
+                dictionary.add(dto.getTeamName());
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 8192));
+        data.writeByte(VERSION);
+        data.writeInt(page.getPage());
+        data.writeInt(page.getSize());
+        data.writeLong(page.getTotalElements());
+        data.writeInt(dictionary.size());
+        for (String teamName : dictionary) {
+            data.writeUTF(teamName);
+        }
+        data.writeInt(content.size());
+        for (MemberTeamDto dto : content) {
+            data.writeLong(dto.getMemberId());
+            writeNullable(data, dto.getUsername());
+            data.writeInt(dto.getAge());
+            data.writeLong(dto.getTeamId() == null ? NO_TEAM : dto.getTeamId());
+            data.writeInt(dto.getTeamName() == null ? -1 : teamNames.get(dto.getTeamName()));
+        }
+        data.flush(); //out은 호출한 쪽에서 닫습니다.
+    }
+
+    public static PageResponse<MemberTeamDto> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported member page version: " + version);
+        }
+        int page = data.readInt();
+        int size = data.readInt();
+        long totalElements = data.readLong();
+        String[] dictionary = new String[data.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = data.readUTF();
+        }
+        int rows = data.readInt();
+        List<MemberTeamDto> content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long memberId = data.readLong();
+            String username = readNullable(data);
+            int age = data.readInt();
+            long teamId = data.readLong();
+            int teamName = data.readInt();
+            content.add(new MemberTeamDto(memberId, username, age,
+                    teamId == NO_TEAM ? null : teamId, teamName < 0 ? null : dictionary[teamName]));
+        }
+        return new PageResponse<>(content, page, size, totalElements);
+    }
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.PageResponse;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * 컨트롤러가 Page&lt;MemberTeamDto&gt;를 돌려주고 Accept가 application/x-member-page 이면 MemberPageCodec으로 씁니다.
+ * (/v2/members, /v3/members)
+ * 응답 쓰기만 지원합니다.
+ */
+public class MemberPageHttpMessageConverter extends AbstractGenericHttpMessageConverter<Page<MemberTeamDto>> {
+
+    public MemberPageHttpMessageConverter() {
+        super(MemberPageCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Page.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * 내용물이 MemberTeamDto인 Page만 (제네릭 타입은 컨트롤러 메서드 반환 타입으로 확인)
+     */
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!(type instanceof ParameterizedType) || !canWrite(mediaType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        return parameterized.getRawType() instanceof Class
+                && supports((Class<?>) parameterized.getRawType())
+                && parameterized.getActualTypeArguments()[0] == MemberTeamDto.class;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false; //제네릭 타입을 모르면 내용물을 확신할 수 없음
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Page<MemberTeamDto> page, Type type, HttpOutputMessage outputMessage) throws IOException {
+        MemberPageCodec.write(new PageResponse<>(page), outputMessage.getBody());
+    }
+
+    @Override
+    protected Page<MemberTeamDto> readInternal(Class<? extends Page<MemberTeamDto>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("member page can only be written", inputMessage);
+    }
+
+    @Override
+    public Page<MemberTeamDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("member page can only be written", inputMessage);
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitoring.SlowQuery;
+import study.querydsl.monitoring.SlowQueryLog;
+
+import java.util.List;
+
+/**
+ * 느린 쿼리 조회 (관리자용)
+ */
+@RestController
+@RequiredArgsConstructor
+public class SlowQueryController {
+    private final SlowQueryLog slowQueryLog;
+
+    @GetMapping("/admin/slow-queries")
+    public List<SlowQuery> slowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    @DeleteMapping("/admin/slow-queries")
+    public void clear() {
+        slowQueryLog.clear();
+    }
+}
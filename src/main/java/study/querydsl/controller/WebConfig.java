@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.monitoring.StatementScopeAsyncInterceptor;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * 맨 뒤에 추가해야 Accept: *&#47;* 요청은 지금처럼 JSON으로 나갑니다.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberPageHttpMessageConverter());
+    }
+
+    /**
+     * 스트리밍 응답을 쓰는 스레드에서 실행된 SQL도 요청의 SQL 예산에 셉니다. (SqlBudgetFilter)
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new StatementScopeAsyncInterceptor());
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * datasource.routing.enabled=true 일 때만 DataSource를 직접 만듭니다. (아니면 스프링 부트 기본 DataSource 하나)
+ * LazyConnectionDataSourceProxy -> ReadWriteRoutingDataSource -> primary / 복제본 Hikari 풀
+ * 풀마다 hikaricp.connections.*{pool=이름} 메트릭이 나옵니다.
+ *
+ * 어느 풀로 갈지는 커넥션을 처음 쓸 때 정해지는데, 하이버네이트 기본값은 EntityManager가 닫힐 때까지 커넥션을 들고 있습니다.
+ * OSIV(spring.jpa.open-in-view)처럼 EntityManager 하나로 트랜잭션을 여러 번 열면 읽기 전용 트랜잭션이 잡은 복제본 커넥션으로
+ * 다음 쓰기 트랜잭션까지 가기 때문에, 라우팅할 때는 트랜잭션이 끝날 때마다 커넥션을 돌려줍니다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public DataSourceTargets dataSourceTargets(DataSourceProperties dataSourceProperties,
+                                               DataSourceRoutingProperties routingProperties,
+                                               MeterRegistry registry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName(DataSourceTargets.PRIMARY);
+        primary.setMetricRegistry(registry);
+
+        List<DataSourceTargets.Replica> replicas = new ArrayList<>();
+        for (DataSourceRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName(replica.getName());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setMetricRegistry(registry);
+            replicas.add(new DataSourceTargets.Replica(replica.getName(), dataSource));
+        }
+        return new DataSourceTargets(primary, replicas, routingProperties);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceTargets targets, MeterRegistry registry) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(targets, registry);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 복제본(replica)으로 보내는 설정
+ * 쓰기(primary)는 spring.datasource 설정을 그대로 씁니다.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "datasource.routing")
+public class DataSourceRoutingProperties {
+    private boolean enabled = false;
+    /**
+     * 복제본이 여러 개일 때 고르는 방법
+     */
+    private ReplicaStrategy strategy = ReplicaStrategy.ROUND_ROBIN;
+    /**
+     * 지연(lag)이 이보다 크거나 확인에 실패한 복제본은 빼고, 남는게 없으면 primary로 보냅니다.
+     */
+    private long maxLagMs = 1000;
+    private long lagCheckIntervalMs = 5000;
+    /**
+     * 복제본에서 지연(ms)을 숫자 하나로 돌려주는 쿼리 (DB마다 다름)
+     * 비어있으면 커넥션이 살아있는지만 봅니다.
+     */
+    private String lagQuery;
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,169 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * primary 커넥션 풀과 복제본 풀들
+ * 복제본은 주기적으로 지연(lag)을 확인해서 너무 뒤처졌거나 응답이 없으면 고르지 않습니다.
+ */
+@Slf4j
+public class DataSourceTargets implements Closeable {
+    public static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaStrategy strategy;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    public DataSourceTargets(HikariDataSource primary, List<Replica> replicas, DataSourceRoutingProperties properties) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.strategy = properties.getStrategy();
+        this.lagQuery = properties.getLagQuery();
+        this.maxLagMillis = properties.getMaxLagMs();
+        checkLag(); //처음 라우팅 전에 한 번
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replica-lag-");
+        threadFactory.setDaemon(true);
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = properties.getLagCheckIntervalMs();
+        lagChecker.scheduleWithFixedDelay(this::checkLag, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return 쓸 수 있는 복제본이 없으면 primary
+     */
+    public String route(boolean readOnly) {
+        if (!readOnly) {
+            return PRIMARY;
+        }
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                available.add(replica);
+            }
+        }
+        if (available.isEmpty()) {
+            return PRIMARY;
+        }
+        if (strategy == ReplicaStrategy.LEAST_CONNECTIONS) {
+            Replica least = available.get(0);
+            for (Replica replica : available) {
+                if (replica.activeConnections() < least.activeConnections()) {
+                    least = replica;
+                }
+            }
+            return least.name;
+        }
+        return available.get(Math.floorMod(next.getAndIncrement(), available.size())).name;
+    }
+
+    Map<Object, Object> lookup() {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : replicas) {
+            targets.put(replica.name, replica.dataSource);
+        }
+        return targets;
+    }
+
+    /**
+     * 대상별 커넥션 사용량 (/admin/datasources)
+     */
+    public Map<String, Map<String, Object>> usage() {
+        Map<String, Map<String, Object>> usage = new LinkedHashMap<>();
+        usage.put(PRIMARY, poolUsage(primary));
+        for (Replica replica : replicas) {
+            Map<String, Object> pool = poolUsage(replica.dataSource);
+            pool.put("available", replica.available);
+            pool.put("lagMs", replica.lagMillis);
+            usage.put(replica.name, pool);
+        }
+        return usage;
+    }
+
+    void checkLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.lagMillis = lagQuery == null ? 0 : queryLag(connection);
+                boolean available = replica.lagMillis <= maxLagMillis;
+                if (available != replica.available) {
+                    log.warn("replica {} is now {} (lag {}ms)", replica.name, available ? "available" : "unavailable", replica.lagMillis);
+                }
+                replica.available = available;
+            } catch (SQLException | RuntimeException e) {
+                if (replica.available) {
+                    log.warn("replica {} lag check failed, routing reads elsewhere", replica.name, e);
+                }
+                replica.available = false;
+            }
+        }
+    }
+
+    private long queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                throw new SQLException("lag query returned no rows: " + lagQuery);
+            }
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Map<String, Object> poolUsage(HikariDataSource dataSource) {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        usage.put("active", pool == null ? 0 : pool.getActiveConnections());
+        usage.put("idle", pool == null ? 0 : pool.getIdleConnections());
+        usage.put("total", pool == null ? 0 : pool.getTotalConnections());
+        usage.put("waiting", pool == null ? 0 : pool.getThreadsAwaitingConnection());
+        return usage;
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+        primary.close();
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean available = true;
+        private volatile long lagMillis;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
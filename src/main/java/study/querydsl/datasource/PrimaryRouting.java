@@ -0,0 +1,34 @@
+package study.querydsl.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 읽기 전용 트랜잭션이어도 primary로 보내는 구간 (datasource.routing.enabled=true 일 때만 의미가 있음)
+ * 커밋 직후에 무효화되는 캐시(검색 결과, 없는 팀 이름, 메모리 검색 엔진, 회원명 인덱스)를 채우는 조회는
+ * 복제본에서 읽으면 지연 때문에 커밋 전 데이터를 다시 채울 수 있어서 primary에서 읽습니다.
+ * 커넥션은 첫 SQL을 실행할 때 고르기 때문에, 트랜잭션 안이라면 아직 SQL을 실행하기 전에 들어와야 합니다.
+ */
+public final class PrimaryRouting {
+    private static final ThreadLocal<Integer> DEPTH = new ThreadLocal<>();
+
+    private PrimaryRouting() {
+    }
+
+    public static <T> T call(Supplier<T> work) {
+        Integer depth = DEPTH.get();
+        DEPTH.set(depth == null ? 1 : depth + 1);
+        try {
+            return work.get();
+        } finally {
+            if (depth == null) {
+                DEPTH.remove();
+            } else {
+                DEPTH.set(depth);
+            }
+        }
+    }
+
+    public static boolean isForced() {
+        return DEPTH.get() != null;
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @Transactional(readOnly = true) 안이면 복제본, 아니면 primary (PrimaryRouting 안이면 읽기 전용이어도 primary)
+ * 트랜잭션이 시작할 때는 아직 readOnly 표시가 안 되어 있어서, LazyConnectionDataSourceProxy로 감싸서
+ * 첫 SQL을 실행할 때 커넥션을 고르게 해야 합니다. (DataSourceRoutingConfig)
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private final DataSourceTargets targets;
+    private final MeterRegistry registry;
+
+    public ReadWriteRoutingDataSource(DataSourceTargets targets, MeterRegistry registry) {
+        this.targets = targets;
+        this.registry = registry;
+        setTargetDataSources(targets.lookup());
+        setDefaultTargetDataSource(targets.lookup().get(DataSourceTargets.PRIMARY));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !PrimaryRouting.isForced();
+        String target = targets.route(readOnly);
+        registry.counter("datasource.routing", "target", target, "readOnly", String.valueOf(readOnly)).increment();
+        return target;
+    }
+}
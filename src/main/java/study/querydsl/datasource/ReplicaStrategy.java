@@ -0,0 +1,9 @@
+package study.querydsl.datasource;
+
+public enum ReplicaStrategy {
+    ROUND_ROBIN,
+    /**
+     * 지금 빌려간 커넥션이 가장 적은 복제본
+     */
+    LEAST_CONNECTIONS
+}
@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.function.Consumer;
+
+/**
+ * 벌크 작업 옵션
+ * chunkSize 건씩 나눠서 트랜잭션을 따로 커밋하고, 청크 사이에 throttleMillis 만큼 쉽니다.
+ */
+@Getter
+public class BulkOptions {
+    private final int chunkSize;
+    private final long throttleMillis;
+    private final Consumer<BulkResult> progressListener; //청크가 끝날 때마다 지금까지의 결과
+
+    private BulkOptions(int chunkSize, long throttleMillis, Consumer<BulkResult> progressListener) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize는 1 이상이어야 합니다: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.throttleMillis = throttleMillis;
+        this.progressListener = progressListener;
+    }
+
+    public static BulkOptions of(int chunkSize, long throttleMillis) {
+        return new BulkOptions(chunkSize, throttleMillis, result -> { });
+    }
+
+    public BulkOptions onProgress(Consumer<BulkResult> progressListener) {
+        return new BulkOptions(chunkSize, throttleMillis, progressListener);
+    }
+}
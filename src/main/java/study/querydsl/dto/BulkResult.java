@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 벌크 작업 결과 (진행중에는 지금까지의 누적)
+ */
+@Getter
+@ToString
+public class BulkResult {
+    private final long affectedRows;
+    private final int chunks;
+    private final long elapsedMillis;
+
+    public BulkResult(long affectedRows, int chunks, long elapsedMillis) {
+        this.affectedRows = affectedRows;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
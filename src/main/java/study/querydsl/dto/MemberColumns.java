@@ -0,0 +1,188 @@
+package study.querydsl.dto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 회원 검색 결과를 행(MemberTeamDto) 대신 열(배열)로 담습니다. (대량 분석용)
+ * id, 나이는 primitive 배열이고, 이름들은 사전(dictionary)에 한 번만 담고 행에는 번호만 둡니다.
+ * 행마다 객체/박싱이 없어서 수십만 건을 읽어도 GC 부담이 작습니다.
+ *
+ * 읽을 때는 cursor()로 한 행씩 이동하면서 값을 꺼냅니다.
+ */
+public final class MemberColumns {
+    public static final long NO_TEAM = 0L; //팀 없는 회원 (시퀀스 id는 1부터)
+    private static final int NULL_CODE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final int[] usernameCodes;
+    private final String[] usernames;
+    private final int[] teamNameCodes;
+    private final String[] teamNames;
+
+    private MemberColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.teamIds = Arrays.copyOf(builder.teamIds, size);
+        this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+        this.usernames = builder.usernames.values();
+        this.teamNameCodes = Arrays.copyOf(builder.teamNameCodes, size);
+        this.teamNames = builder.teamNames.values();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 서로 다른 팀 이름 수
+     */
+    public int teamNameCardinality() {
+        return teamNames.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 건수를 모르면 - 작은 배열에서 시작해 두 배씩 늘립니다.
+     */
+    public static Builder builder() {
+        return new Builder(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 예상 행 수 - 이만큼 배열을 미리 잡습니다.
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * 처음에는 첫 행 앞에 있습니다. next()가 true일 때만 값을 읽을 수 있습니다.
+     */
+    public final class Cursor {
+        private int row = -1;
+
+        public boolean next() {
+            return ++row < size;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public long memberId() {
+            return memberIds[row];
+        }
+
+        public int age() {
+            return ages[row];
+        }
+
+        public boolean hasTeam() {
+            return teamIds[row] != NO_TEAM;
+        }
+
+        public long teamId() {
+            return teamIds[row];
+        }
+
+        public String username() {
+            return decode(usernames, usernameCodes[row]);
+        }
+
+        public String teamName() {
+            return decode(teamNames, teamNameCodes[row]);
+        }
+
+        public MemberTeamDto toDto() {
+            return new MemberTeamDto(memberId(), username(), age(), hasTeam() ? teamId() : null, teamName());
+        }
+    }
+
+    private static String decode(String[] dictionary, int code) {
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    /**
+     * 배열을 두 배씩 늘려가며 채웁니다.
+     */
+    public static final class Builder {
+        private int size;
+        private long[] memberIds;
+        private int[] ages;
+        private long[] teamIds;
+        private int[] usernameCodes;
+        private int[] teamNameCodes;
+        private final Dictionary usernames = new Dictionary();
+        private final Dictionary teamNames = new Dictionary();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+            memberIds = new long[capacity];
+            ages = new int[capacity];
+            teamIds = new long[capacity];
+            usernameCodes = new int[capacity];
+            teamNameCodes = new int[capacity];
+        }
+
+        /**
+         * @param teamId 팀이 없으면 NO_TEAM
+         */
+        public Builder add(long memberId, String username, int age, long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            teamIds[size] = teamId;
+            usernameCodes[size] = usernames.encode(username);
+            teamNameCodes[size] = teamNames.encode(teamName);
+            size++;
+            return this;
+        }
+
+        public MemberColumns build() {
+            return new MemberColumns(this);
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = codes.size();
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            return next;
+        }
+
+        String[] values() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 커서 기반 페이징의 이어보기 토큰
+ * 마지막으로 내려준 회원의 (age, memberId)를 담아두고 다음 페이지는 그 뒤부터 조회합니다.
+ * 클라이언트에는 Base64로 감싼 문자열로만 노출해서 내부 구조에 의존하지 않게 합니다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MemberCursor {
+    private static final String SEPARATOR = ":";
+
+    private final int age;
+    private final Long memberId;
+
+    public MemberCursor(int age, Long memberId) {
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    public static MemberCursor of(MemberTeamDto last) {
+        return new MemberCursor(last.getAge(), last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = age + SEPARATOR + memberId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("커서 형식이 올바르지 않습니다.");
+            }
+            return new MemberCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) { //NumberFormatException 포함
+            throw new IllegalArgumentException("잘못된 커서 토큰입니다: " + token, e);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명 , 팀명, 나이(ageGoe, ageLoe)
@@ -10,4 +12,28 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    //회원명 검색 방식 (MemberRepository 검색만 - PREFIX, CONTAINS는 UsernameIndex로 후보를 좁힘)
+    private UsernameMatch usernameMatch = UsernameMatch.EXACT;
+
+    public UsernameMatch getUsernameMatch() {
+        return usernameMatch == null ? UsernameMatch.EXACT : usernameMatch;
+    }
+
+    /**
+     * 회원명, 팀명의 앞뒤 공백을 지우고 빈 문자열은 조건 없음(null)으로 바꾼 복사본
+     * 캐시 키와 실제 쿼리가 같은 조건을 보도록 검색 캐시를 타기 전에 한 번만 만듭니다.
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(trim(username));
+        normalized.setTeamName(trim(teamName));
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        normalized.setUsernameMatch(getUsernameMatch());
+        return normalized;
+    }
+
+    private static String trim(String value) {
+        return hasText(value) ? value.trim() : null;
+    }
 }
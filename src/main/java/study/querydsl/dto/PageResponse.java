@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * Page 응답 - PageImpl의 pageable, sort 같은 메타데이터 없이 필요한 것만 담습니다.
+ * 바이너리 응답(MemberPageCodec)도 이 모양 그대로 씁니다.
+ */
+@Getter
+public class PageResponse<T> {
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final long totalElements;
+
+    public PageResponse(Page<T> page) {
+        this(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements());
+    }
+
+    public PageResponse(List<T> content, int page, int size, long totalElements) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+    }
+
+    public int getTotalPages() {
+        return size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+    }
+}
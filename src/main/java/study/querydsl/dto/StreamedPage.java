@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+/**
+ * 내용을 흘려보낸(스트리밍) 페이지의 메타데이터 - 내용물은 들고 있지 않습니다.
+ */
+@Getter
+public class StreamedPage {
+    private final int page;
+    private final int size;
+    private final int rows; //이번 페이지에서 넘긴 건수
+    private final long totalElements;
+
+    public StreamedPage(int page, int size, int rows, long totalElements) {
+        this.page = page;
+        this.size = size;
+        this.rows = rows;
+        this.totalElements = totalElements;
+    }
+
+    public boolean isHasNext() {
+        return (long) (page + 1) * size < totalElements;
+    }
+}
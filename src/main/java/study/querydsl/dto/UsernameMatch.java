@@ -0,0 +1,53 @@
+package study.querydsl.dto;
+
+/**
+ * 회원명 검색 방식
+ */
+public enum UsernameMatch {
+    EXACT,
+    /**
+     * ~로 시작
+     */
+    PREFIX,
+    /**
+     * ~를 포함
+     */
+    CONTAINS;
+
+    public static final char LIKE_ESCAPE = '!';
+
+    public boolean matches(String text, String username) {
+        if (username == null) {
+            return false;
+        }
+        switch (this) {
+            case PREFIX:
+                return username.startsWith(text);
+            case CONTAINS:
+                return username.contains(text);
+            default:
+                return username.equals(text);
+        }
+    }
+
+    /**
+     * like 패턴 - 검색어 안의 %, _ 는 LIKE_ESCAPE로 이스케이프해서 글자 그대로 찾습니다.
+     */
+    public String likePattern(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 4);
+        if (this == CONTAINS) {
+            pattern.append('%');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        if (this != EXACT) {
+            pattern.append('%');
+        }
+        return pattern.toString();
+    }
+}
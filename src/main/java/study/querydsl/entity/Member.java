@@ -2,12 +2,18 @@ package study.querydsl.entity;
 import lombok.*;
 import javax.persistence.*;
 @Entity
+@Table(indexes = { //검색 조건(MemberSearchTemplates) 컬럼마다 - 조합별로 더 필요한지는 /admin/index-advice
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_id", columnList = "team_id")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50) //pooled-lo로 50개씩 한번에 할당
     @Column(name = "member_id")
     private Long id;
     private String username;
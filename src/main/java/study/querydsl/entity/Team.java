@@ -1,17 +1,31 @@
 package study.querydsl.entity;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_team_name", columnNames = "name")) //팀 이름 -> id 조회 (@NaturalId 유니크 키와 같은 것이라 하나만 만들어짐)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache //팀 이름 -> id도 2차 캐시에
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
+    @NaturalId(mutable = true)
     private String name;
+    @BatchSize(size = 100) //findTeamsWithMembers 말고 다른 경로로 members를 건드려도 팀마다 쿼리가 나가지 않도록 IN으로 묶어서
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
     public Team(String name) {
@@ -0,0 +1,28 @@
+package study.querydsl.monitoring;
+
+import lombok.Getter;
+
+/**
+ * 검색 조건 모양 하나의 실행계획과 인덱스 제안
+ */
+@Getter
+public class IndexAdvice {
+    private final String pattern; //조건 모양 + 정렬 (username+ageGoe order by age desc, id asc (id만 먼저))
+    private final long executions; //기록된 뒤로 실행된 횟수
+    private final String sql; //EXPLAIN에 쓴 SQL (값은 예시)
+    private final String plan;
+    private final boolean fullScan; //회원 테이블을 전부 읽음
+    private final boolean sortedByIndex; //정렬을 인덱스 순서로 대신함
+    private final String suggestion; //fullScan일 때만 - create index ... 또는 인덱스로 안 되는 이유
+
+    public IndexAdvice(String pattern, long executions, String sql, String plan,
+                       boolean fullScan, boolean sortedByIndex, String suggestion) {
+        this.pattern = pattern;
+        this.executions = executions;
+        this.sql = sql;
+        this.plan = plan;
+        this.fullScan = fullScan;
+        this.sortedByIndex = sortedByIndex;
+        this.suggestion = suggestion;
+    }
+}
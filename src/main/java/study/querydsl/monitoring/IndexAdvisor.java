@@ -0,0 +1,310 @@
+package study.querydsl.monitoring;
+
+import com.querydsl.core.types.OrderSpecifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberSearchShape;
+import study.querydsl.repository.MemberSearchShape.UsernameFilter;
+import study.querydsl.repository.MemberSearchTemplates;
+import study.querydsl.repository.MemberSort;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 실제로 들어온 검색 조건 모양 + 정렬을 모아두고, 모양마다 H2 EXPLAIN을 돌려서 회원 테이블을 전부 읽는 것을 찾아냅니다.
+ * 전부 읽는 모양에는 고쳐줄 복합 인덱스(create index ...)를 제안합니다. (/admin/index-advice)
+ *
+ * 기록은 SearchMetricsAspect가 검색 메서드마다 합니다. 값은 모으지 않고 모양만 세기 때문에 가볍고,
+ * 모양 개수가 max-patterns를 넘으면 새 모양은 버립니다.
+ * 정렬은 정렬하는 검색(searchPageComplex, searchPageStream, searchSlice)에서만, MemberSort.normalize()를 거친 것만 기록합니다.
+ * 정렬할 수 없는 속성이 들어온 요청은 검색도 실패하니 기록하지 않습니다. 커서 검색(searchByCursor)은 항상 (age, id) 순서입니다.
+ * EXPLAIN은 advise()를 부를 때만 돌리고, 검색이 실제로 쓰는 MemberSearchTemplates 템플릿을 하이버네이트가 바꾼 SQL로 돌립니다.
+ */
+@Slf4j
+@Component
+public class IndexAdvisor {
+    private static final Pattern MEMBER_TABLE_SCAN = Pattern.compile("(?i)\\bMEMBER\\.tableScan\\b");
+    private static final String INDEX_SORTED = "index sorted"; //H2가 정렬을 인덱스 순서로 대신했을 때 붙이는 주석
+    private static final int SAMPLE_LIMIT = 10; //id만 고르는 쿼리, 커서 쿼리에 붙이는 페이지 크기
+
+    private final DataSource dataSource;
+    private final ObjectProvider<MemberSearchTemplates> searchTemplates; //검색 애스펙트가 먼저 만들어지니 늦게 꺼냅니다.
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final boolean usernameIndex;
+    private final int maxPatterns;
+    private final ConcurrentMap<SearchPattern, LongAdder> patterns = new ConcurrentHashMap<>();
+
+    public IndexAdvisor(DataSource dataSource,
+                        ObjectProvider<MemberSearchTemplates> searchTemplates,
+                        ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                        @Value("${member.search.username-index.enabled:true}") boolean usernameIndex,
+                        @Value("${monitoring.index-advisor.max-patterns:200}") int maxPatterns) {
+        this.dataSource = dataSource;
+        this.searchTemplates = searchTemplates;
+        this.entityManagerFactory = entityManagerFactory;
+        this.usernameIndex = usernameIndex;
+        this.maxPatterns = maxPatterns;
+    }
+
+    /**
+     * @param sorted pageable의 정렬을 쿼리에 쓰는 검색이면 true
+     */
+    public void record(MemberSearchCondition condition, Pageable pageable, boolean sorted) {
+        SearchPattern pattern;
+        try {
+            pattern = SearchPattern.of(condition, pageable, sorted, usernameIndex);
+        } catch (IllegalArgumentException e) {
+            return; //정렬할 수 없는 속성
+        }
+        count(pattern);
+    }
+
+    /**
+     * @param afterCursor 첫 페이지가 아니라 커서 다음부터 읽으면 true
+     */
+    public void recordCursor(MemberSearchCondition condition, boolean afterCursor) {
+        count(SearchPattern.ofCursor(condition, afterCursor, usernameIndex));
+    }
+
+    private void count(SearchPattern pattern) {
+        LongAdder count = patterns.get(pattern);
+        if (count == null) {
+            if (patterns.size() >= maxPatterns) {
+                return;
+            }
+            count = patterns.computeIfAbsent(pattern, p -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * 많이 실행된 모양부터
+     */
+    public List<IndexAdvice> advise() {
+        List<IndexAdvice> advice = new ArrayList<>();
+        for (Map.Entry<SearchPattern, LongAdder> entry : patterns.entrySet()) {
+            SearchPattern pattern = entry.getKey();
+            String sql = toSql(pattern);
+            String plan = explain(sql);
+            boolean fullScan = MEMBER_TABLE_SCAN.matcher(plan).find();
+            advice.add(new IndexAdvice(pattern.describe(), entry.getValue().sum(), sql, plan, fullScan,
+                    plan.contains(INDEX_SORTED), fullScan ? pattern.suggestIndex() : null));
+        }
+        advice.sort(Comparator.comparingLong(IndexAdvice::getExecutions).reversed());
+        return advice;
+    }
+
+    public void clear() {
+        patterns.clear();
+    }
+
+    /**
+     * 값은 예시 - 팀 이름은 팀 id로 바꿔서 member.team_id로 거르고, PREFIX/CONTAINS는 후보 id(member_id in)로 좁히는 것까지 템플릿 그대로입니다.
+     */
+    private String toSql(SearchPattern pattern) {
+        MemberSearchTemplates templates = searchTemplates.getObject();
+        EntityManagerFactory emf = entityManagerFactory.getObject();
+        MemberSearchShape shape = pattern.shape();
+        if (pattern.isCursor()) {
+            return templates.sampleCursorSql(emf, shape, pattern.getUsername(), pattern.isAfterCursor(), SAMPLE_LIMIT);
+        }
+        if (pattern.getOrders().isEmpty()) {
+            return templates.sampleContentSql(emf, shape, pattern.getUsername(), Collections.emptyList());
+        }
+        List<OrderSpecifier<?>> orders = MemberSort.orderSpecifiers(Sort.by(pattern.getOrders()));
+        if (pattern.isDeferred()) {
+            return templates.sampleIdSql(emf, shape, pattern.getUsername(), orders, SAMPLE_LIMIT);
+        }
+        return templates.sampleContentSql(emf, shape, pattern.getUsername(), orders);
+    }
+
+    private String explain(String sql) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        } catch (SQLException | RuntimeException ex) {
+            log.debug("explain failed: {}", sql, ex);
+            return "EXPLAIN 실패: " + ex.getMessage();
+        }
+    }
+
+    /**
+     * 검색 조건 모양(값 없음) + 정렬
+     */
+    @lombok.Value
+    static class SearchPattern {
+        UsernameMatch username; //회원명 조건이 없으면 null
+        boolean usernameCandidates; //PREFIX/CONTAINS를 UsernameIndex 후보 id로 좁히는지
+        boolean teamName;
+        boolean ageGoe;
+        boolean ageLoe;
+        List<Sort.Order> orders; //정렬하지 않는 검색이면 비어있음, 정렬하면 마지막은 항상 id
+        boolean deferred; //페이지를 id만 고르는 쿼리로 먼저 고르는지 (정렬 + 페이지)
+        boolean cursor; //커서 검색 - (age, id) 순서
+        boolean afterCursor; //커서 다음부터 (age, id) > (?, ?)
+
+        /**
+         * @throws IllegalArgumentException 정렬할 수 없는 속성 (MemberSort.normalize)
+         */
+        static SearchPattern of(MemberSearchCondition condition, Pageable pageable, boolean sorted, boolean usernameIndex) {
+            List<Sort.Order> orders = sorted
+                    ? MemberSort.normalize(pageable == null ? Sort.unsorted() : pageable.getSort())
+                    : Collections.emptyList();
+            boolean deferred = sorted && pageable != null && pageable.isPaged();
+            return of(condition, usernameIndex, orders, deferred, false, false);
+        }
+
+        static SearchPattern ofCursor(MemberSearchCondition condition, boolean afterCursor, boolean usernameIndex) {
+            List<Sort.Order> orders = Arrays.asList(Sort.Order.asc(MemberSort.AGE), Sort.Order.asc(MemberSort.ID));
+            return of(condition, usernameIndex, orders, false, true, afterCursor);
+        }
+
+        private static SearchPattern of(MemberSearchCondition condition, boolean usernameIndex, List<Sort.Order> orders,
+                                        boolean deferred, boolean cursor, boolean afterCursor) {
+            if (condition == null) {
+                return new SearchPattern(null, false, false, false, false, orders, deferred, cursor, afterCursor);
+            }
+            UsernameMatch username = hasText(condition.getUsername()) ? condition.getUsernameMatch() : null;
+            return new SearchPattern(
+                    username,
+                    usernameIndex && username != null && username != UsernameMatch.EXACT,
+                    hasText(condition.getTeamName()),
+                    condition.getAgeGoe() != null,
+                    condition.getAgeLoe() != null,
+                    orders,
+                    deferred,
+                    cursor,
+                    afterCursor);
+        }
+
+        /**
+         * MemberSearchTemplates가 이 검색에 고르는 템플릿의 모양
+         */
+        MemberSearchShape shape() {
+            UsernameFilter usernameFilter = UsernameFilter.NONE;
+            if (username == UsernameMatch.EXACT) {
+                usernameFilter = UsernameFilter.EQ;
+            } else if (username != null) {
+                usernameFilter = usernameCandidates ? UsernameFilter.CANDIDATES : UsernameFilter.LIKE;
+            }
+            return new MemberSearchShape(usernameFilter, teamName, ageGoe, ageLoe);
+        }
+
+        String describe() {
+            StringJoiner joiner = new StringJoiner("+");
+            joiner.setEmptyValue("none");
+            if (username != null) {
+                joiner.add(username == UsernameMatch.EXACT ? "username" : "username(" + username + ")");
+            }
+            if (teamName) {
+                joiner.add("teamName");
+            }
+            if (ageGoe) {
+                joiner.add("ageGoe");
+            }
+            if (ageLoe) {
+                joiner.add("ageLoe");
+            }
+            if (orders.isEmpty()) {
+                return joiner.toString();
+            }
+            StringJoiner orderBy = new StringJoiner(", ", joiner + " order by ", suffix());
+            for (Sort.Order order : orders) {
+                orderBy.add(order.getProperty() + " " + order.getDirection().name().toLowerCase());
+            }
+            return orderBy.toString();
+        }
+
+        private String suffix() {
+            if (cursor) {
+                return afterCursor ? " (커서 다음)" : " (커서)";
+            }
+            return deferred ? " (id만 먼저)" : "";
+        }
+
+        /**
+         * 같은 값(=) 조건 컬럼 -> 범위 조건 컬럼 하나 -> (범위가 없으면) 회원 테이블 정렬 컬럼 순서로 묶습니다.
+         * B-tree 인덱스는 범위 조건 뒤의 컬럼으로는 더 좁히거나 정렬하지 못합니다.
+         * 마지막 id 정렬은 H2 인덱스가 행 키(id)를 끝에 이미 들고 있어서 넣지 않습니다.
+         */
+        String suggestIndex() {
+            List<String> columns = new ArrayList<>();
+            if (username == UsernameMatch.EXACT) {
+                columns.add("username");
+            }
+            if (teamName) {
+                columns.add("team_id");
+            }
+            boolean range = false;
+            if (username == UsernameMatch.PREFIX) {
+                columns.add("username");
+                range = true;
+            } else if (ageGoe || ageLoe) {
+                columns.add("age");
+                range = true;
+            }
+            if (!range) {
+                for (Sort.Order order : orders) {
+                    String column = column(order.getProperty());
+                    if (!column.startsWith("m.") || column.equals("m.member_id")) {
+                        break; //팀 이름 정렬은 조인한 뒤라 회원 인덱스로 받을 수 없음
+                    }
+                    if (!columns.contains(column.substring(2))) {
+                        columns.add(column.substring(2));
+                    }
+                }
+            }
+            if (columns.isEmpty()) {
+                return username == UsernameMatch.CONTAINS
+                        ? "B-tree 인덱스로는 '%x%'를 좁힐 수 없음 - member.search.username-index로 후보 id를 좁히세요"
+                        : "조건 없는 전체 조회라 인덱스로 줄일 수 없음 - 페이지 크기를 제한하세요";
+            }
+            return "create index idx_member_" + String.join("_", columns) + " on member (" + String.join(", ", columns) + ")";
+        }
+
+        /**
+         * orders는 MemberSort.normalize()를 거쳐서 아래 속성만 들어옵니다.
+         */
+        private static String column(String property) {
+            switch (property) {
+                case MemberSort.USERNAME:
+                    return "m.username";
+                case MemberSort.AGE:
+                    return "m.age";
+                case MemberSort.TEAM_NAME:
+                    return "t.name";
+                default:
+                    return "m.member_id";
+            }
+        }
+    }
+}
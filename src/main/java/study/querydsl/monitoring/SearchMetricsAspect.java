@@ -0,0 +1,157 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.StreamedPage;
+import study.querydsl.repository.MemberSearchShape;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 회원 검색 메서드별 응답시간/조회 건수 메트릭
+ * 어떤 조건 조합(shape)이 느린지 보려고 조건 모양, 페이지 깊이, 호출한 엔드포인트(/v1, /v2 ...)로 태그를 붙입니다.
+ * /actuator/metrics/member.search?tag=shape:teamName 처럼 조회합니다.
+ * 조건 모양과 정렬은 IndexAdvisor에도 넘겨서 실행계획을 볼 수 있게 합니다. (/admin/index-advice)
+ */
+@Aspect
+@Component
+public class SearchMetricsAspect {
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    /**
+     * pageable의 정렬을 쿼리에 쓰는 검색 - 나머지는 정렬을 무시합니다.
+     */
+    private static final Set<String> SORTED_METHODS = new HashSet<>(Arrays.asList("searchPageComplex", "searchPageStream", "searchSlice"));
+    /**
+     * pageable 대신 커서로 (age, id) 순서로 읽는 검색
+     */
+    private static final String CURSOR_METHOD = "searchByCursor";
+
+    private final MeterRegistry registry;
+    private final IndexAdvisor indexAdvisor;
+
+    public SearchMetricsAspect(MeterRegistry registry, IndexAdvisor indexAdvisor) {
+        this.registry = registry;
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    @Around("execution(* study.querydsl.repository.MemberRepositoryImpl.search*(..))" +
+            " || execution(* study.querydsl.repository.MemberJpaRepository.search*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        MemberSearchCondition condition = null;
+        Pageable pageable = null;
+        MemberCursor cursor = null;
+        for (Object arg : joinPoint.getArgs()) {
+            if (arg instanceof MemberSearchCondition) {
+                condition = (MemberSearchCondition) arg;
+            } else if (arg instanceof Pageable) {
+                pageable = (Pageable) arg;
+            } else if (arg instanceof MemberCursor) {
+                cursor = (MemberCursor) arg;
+            }
+        }
+        String method = joinPoint.getSignature().getName();
+        if (CURSOR_METHOD.equals(method)) {
+            indexAdvisor.recordCursor(condition, cursor != null);
+        } else {
+            indexAdvisor.record(condition, pageable, SORTED_METHODS.contains(method));
+        }
+        Tags tags = tags(joinPoint, condition, pageable);
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = "success";
+            DistributionSummary.builder("member.search.rows")
+                    .description("검색 한번에 돌려준 회원 수")
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry)
+                    .record(rowCount(result));
+            return result;
+        } finally {
+            sample.stop(Timer.builder("member.search")
+                    .description("회원 검색 응답시간")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private Tags tags(ProceedingJoinPoint joinPoint, MemberSearchCondition condition, Pageable pageable) {
+        return Tags.of(
+                "method", joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName(),
+                "shape", condition != null ? MemberSearchShape.of(condition).describe() : "none",
+                "pageDepth", pageDepth(pageable),
+                "endpoint", endpoint());
+    }
+
+    /**
+     * 페이지 번호를 구간으로 묶어서 태그 개수가 늘어나지 않게 합니다.
+     */
+    private static String pageDepth(Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged()) {
+            return "unpaged";
+        }
+        int page = pageable.getPageNumber();
+        if (page == 0) {
+            return "0";
+        }
+        if (page < 10) {
+            return "1-9";
+        }
+        if (page < 100) {
+            return "10-99";
+        }
+        return "100+";
+    }
+
+    /**
+     * 요청을 처리중인 컨트롤러 매핑 (/v1/members, /v3/members ...)
+     */
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "none";
+        }
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return pattern != null ? pattern.toString() : "none";
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) { //Page 포함
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberCursorPage) {
+            return ((MemberCursorPage) result).getContent().size();
+        }
+        if (result instanceof StreamedPage) {
+            return ((StreamedPage) result).getRows();
+        }
+        if (result instanceof Number) { //스트리밍 조회는 건수를 돌려줌
+            return ((Number) result).longValue();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.monitoring;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 느린 쿼리 한 건
+ * 실행계획(plan)은 비동기로 나중에 채워집니다.
+ */
+@Getter
+public class SlowQuery {
+    private final LocalDateTime executedAt;
+    private final long elapsedMillis;
+    private final String sql; //파라미터가 바인딩된 SQL
+    private final String caller; //호출한 레파지토리 메서드
+    private volatile String plan;
+
+    public SlowQuery(LocalDateTime executedAt, long elapsedMillis, String sql, String caller) {
+        this.executedAt = executedAt;
+        this.elapsedMillis = elapsedMillis;
+        this.sql = sql;
+        this.caller = caller;
+    }
+
+    void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * p6spy 이벤트로 느린 쿼리를 잡아냅니다.
+ * org.hibernate.SQL 로그를 켜지 않아도 기준 시간을 넘긴 쿼리만 바인딩된 SQL, 걸린 시간, 호출한 레파지토리 메서드와 함께 남기고,
+ * SELECT는 별도 스레드에서 H2 EXPLAIN을 돌려 실행계획도 붙여둡니다.
+ * p6spy-spring-boot-starter가 JdbcEventListener 빈을 자동으로 등록합니다.
+ */
+@Slf4j
+@Component
+public class SlowQueryListener extends JdbcEventListener {
+    private static final String CALLER_PACKAGE = "study.querydsl.repository";
+
+    private final SlowQueryLog slowQueryLog;
+    private final ObjectProvider<DataSource> dataSource; //자기 자신을 감싸는 DataSource라 늦게 꺼냅니다.
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final ThreadPoolExecutor explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(100), new ThreadPoolExecutor.DiscardPolicy()); //밀리면 실행계획은 포기
+
+    public SlowQueryListener(SlowQueryLog slowQueryLog,
+                             ObjectProvider<DataSource> dataSource,
+                             @Value("${monitoring.slow-query.threshold-ms:100}") long thresholdMillis,
+                             @Value("${monitoring.slow-query.explain:true}") boolean explain) {
+        this.slowQueryLog = slowQueryLog;
+        this.dataSource = dataSource;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explain = explain;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (timeElapsedNanos < thresholdNanos) {
+            return;
+        }
+        String sql = statementInformation.getSqlWithValues();
+        if (isExplain(sql)) {
+            return;
+        }
+        SlowQuery slowQuery = new SlowQuery(LocalDateTime.now(), TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), sql, caller());
+        slowQueryLog.add(slowQuery);
+        log.warn("slow query {}ms at {}: {}", slowQuery.getElapsedMillis(), slowQuery.getCaller(), sql);
+
+        if (explain && isSelect(sql)) {
+            explainExecutor.execute(() -> slowQuery.setPlan(explain(sql)));
+        }
+    }
+
+    private String explain(String sql) {
+        try (Connection connection = dataSource.getObject().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        } catch (SQLException | RuntimeException ex) {
+            log.debug("explain failed: {}", sql, ex);
+            return "EXPLAIN 실패: " + ex.getMessage();
+        }
+    }
+
+    /**
+     * 스택에서 처음 나오는 레파지토리 메서드 (스프링 프록시 클래스는 건너뜀)
+     */
+    private static String caller() {
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith(CALLER_PACKAGE) && !className.contains("$$")) {
+                return className.substring(CALLER_PACKAGE.length() + 1) + "." + element.getMethodName() + ":" + element.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.trim().toLowerCase(Locale.ROOT).startsWith("select");
+    }
+
+    private static boolean isExplain(String sql) {
+        return sql.trim().toLowerCase(Locale.ROOT).startsWith("explain");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 느린 쿼리 보관함 - 크기가 정해진 링 버퍼라 가득 차면 가장 오래된 것부터 버립니다.
+ */
+@Component
+public class SlowQueryLog {
+    private final int capacity;
+    private final Deque<SlowQuery> queries;
+
+    public SlowQueryLog(@Value("${monitoring.slow-query.capacity:200}") int capacity) {
+        this.capacity = capacity;
+        this.queries = new ArrayDeque<>(capacity);
+    }
+
+    public synchronized void add(SlowQuery query) {
+        if (queries.size() == capacity) {
+            queries.removeFirst();
+        }
+        queries.addLast(query);
+    }
+
+    /**
+     * 최근 것부터
+     */
+    public synchronized List<SlowQuery> recent() {
+        List<SlowQuery> result = new ArrayList<>(queries.size());
+        queries.descendingIterator().forEachRemaining(result::add);
+        return result;
+    }
+
+    public synchronized void clear() {
+        queries.clear();
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * @Transactional 메서드 하나를 StatementScope로 감싸서 반복 SQL(N+1)을 검사합니다.
+ * 트랜잭션 advisor(기본 LOWEST_PRECEDENCE)보다 바깥에서 돌아야 커밋할 때 flush되는 SQL까지 세고,
+ * 트랜잭션이 끝난 뒤에 검사합니다. (fail-on-violation이어도 이미 커밋된 변경은 그대로)
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class SqlBudgetAspect {
+    private final SqlBudgetGuard guard;
+
+    public SqlBudgetAspect(SqlBudgetGuard guard) {
+        this.guard = guard;
+    }
+
+    @Around("within(study.querydsl..*) && !within(study.querydsl.monitoring..*)" +
+            " && (@annotation(org.springframework.transaction.annotation.Transactional)" +
+            " || @within(org.springframework.transaction.annotation.Transactional))")
+    public Object check(ProceedingJoinPoint joinPoint) throws Throwable {
+        StatementScope scope = StatementScope.open(joinPoint.getSignature().toShortString());
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } finally {
+            scope.close();
+        }
+        guard.check(scope, null);
+        return result;
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.monitoring;
+
+/**
+ * SQL 예산 초과 또는 N+1 의심 (sql.budget.fail-on-violation=true 일 때만)
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.monitoring;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 StatementScope로 감싸서 엔드포인트별 SQL 예산을 검사합니다.
+ * 어떤 매핑인지는 요청 처리가 끝나야 알 수 있어서 끝난 뒤에 예산을 찾습니다.
+ * 비동기 요청(StreamingResponseBody 등)은 응답을 쓰는 스레드에서도 같은 범위로 세고(StatementScopeAsyncInterceptor),
+ * ASYNC 디스패치로 요청이 정말 끝날 때 검사합니다.
+ * 이미 나간 응답은 실패로 바꿀 수 없으니, fail-on-violation이면 검사가 끝날 때까지 응답 본문을 붙잡아 둡니다. (테스트 프로필용)
+ */
+@Component
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    /**
+     * 요청 범위를 비동기 스레드, ASYNC 디스패치에 넘기는 request attribute
+     */
+    public static final String SCOPE_ATTRIBUTE = SqlBudgetFilter.class.getName() + ".SCOPE";
+
+    private final SqlBudgetGuard guard;
+
+    public SqlBudgetFilter(SqlBudgetGuard guard) {
+        this.guard = guard;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementScope scope = (StatementScope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null) {
+            scope = StatementScope.open(request.getMethod() + " " + request.getRequestURI());
+            request.setAttribute(SCOPE_ATTRIBUTE, scope);
+        } else {
+            scope.enter(); //ASYNC 디스패치
+        }
+        ContentCachingResponseWrapper held = null;
+        if (guard.isFailOnViolation()) {
+            held = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (held == null) {
+                held = new ContentCachingResponseWrapper(response);
+            }
+        }
+        HttpServletResponse target = held != null ? held : response;
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            scope.close();
+        }
+        if (isAsyncStarted(request)) {
+            return; //응답은 비동기 스레드에서 마저 쓰고 ASYNC 디스패치에서 검사
+        }
+        request.removeAttribute(SCOPE_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Integer budget = pattern != null ? guard.budgetOf(pattern.toString()) : null;
+        if (target.isCommitted()) {
+            guard.record(scope, budget);
+        } else {
+            guard.check(scope, budget);
+        }
+        if (held != null) {
+            held.copyBodyToResponse();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 닫힌 StatementScope를 검사해서 예산 초과/반복 SQL을 로그, 메트릭으로 남기고 설정에 따라 실패시킵니다.
+ */
+@Slf4j
+@Component
+public class SqlBudgetGuard {
+    private final SqlBudgetProperties properties;
+    private final MeterRegistry registry;
+
+    public SqlBudgetGuard(SqlBudgetProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * @param budget 예산이 없는 범위면 null (반복 SQL만 검사)
+     */
+    public void check(StatementScope scope, Integer budget) {
+        String violation = record(scope, budget);
+        if (violation != null && properties.isFailOnViolation()) {
+            throw new SqlBudgetExceededException(violation);
+        }
+    }
+
+    /**
+     * 위반을 로그, 메트릭으로만 남기고 실패시키지는 않습니다. 응답이 이미 나가서 실패로 바꿀 수 없을 때 씁니다.
+     * @return 위반 내용, 없으면 null
+     */
+    public String record(StatementScope scope, Integer budget) {
+        List<String> violations = new ArrayList<>();
+        if (budget != null && scope.getTotal() > budget) {
+            registry.counter("sql.budget.exceeded", "scope", scope.getName()).increment();
+            violations.add("SQL " + scope.getTotal() + "개 실행 (예산 " + budget + "개)");
+        }
+        for (Map.Entry<String, StatementScope.StatementCount> entry : scope.getStatements().entrySet()) {
+            StatementScope.StatementCount count = entry.getValue();
+            if (count.getCount() >= properties.getRepeatThreshold()) {
+                registry.counter("sql.repeated.statement", "scope", scope.getName()).increment();
+                violations.add("같은 SQL " + count.getCount() + "번 반복 (N+1 의심) at " + count.getCallSite() + "\n  " + entry.getKey());
+            }
+        }
+        if (violations.isEmpty()) {
+            return null;
+        }
+        String message = "[" + scope.getName() + "] " + String.join("\n", violations) + "\n실행된 SQL: " + summary(scope);
+        log.warn(message);
+        return message;
+    }
+
+    public boolean isFailOnViolation() {
+        return properties.isFailOnViolation();
+    }
+
+    public Integer budgetOf(String endpoint) {
+        return properties.getEndpoints().get(endpoint);
+    }
+
+    private static String summary(StatementScope scope) {
+        StringBuilder builder = new StringBuilder();
+        scope.getStatements().forEach((sql, count) ->
+                builder.append("\n  ").append(count.getCount()).append("x ").append(count.getCallSite()));
+        return builder.toString();
+    }
+}
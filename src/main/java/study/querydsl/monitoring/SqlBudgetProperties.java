@@ -0,0 +1,31 @@
+package study.querydsl.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 엔드포인트별 SQL 개수 예산과 N+1 판단 기준
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sql.budget")
+public class SqlBudgetProperties {
+    /**
+     * 컨트롤러 매핑 -> 요청 하나에 허용하는 SQL 개수 (예: "[/v3/members]": 4)
+     */
+    private Map<String, Integer> endpoints = new HashMap<>();
+    /**
+     * 같은 SQL이 한 범위 안에서 이 횟수 이상 나오면 N+1로 봅니다.
+     */
+    private int repeatThreshold = 5;
+    /**
+     * 위반시 예외를 던질지 (테스트 프로필용)
+     */
+    private boolean failOnViolation = false;
+}
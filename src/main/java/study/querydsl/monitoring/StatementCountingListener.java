@@ -0,0 +1,20 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * JDBC로 실행된 SQL마다 열려있는 StatementScope에 한 건씩 셉니다.
+ * 하이버네이트 쿼리뿐 아니라 doReturningWork 같은 JDBC 직접 실행도 같이 셉니다.
+ * p6spy-spring-boot-starter가 JdbcEventListener 빈을 자동으로 등록합니다.
+ */
+@Component
+public class StatementCountingListener extends JdbcEventListener {
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        StatementScope.record(statementInformation.getSql());
+    }
+}
@@ -0,0 +1,155 @@
+package study.querydsl.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 한 범위(HTTP 요청, @Transactional 메서드) 안에서 실행된 SQL 개수
+ * 스레드 단위로 열려있는 범위들을 스택으로 들고 있어서, 요청 안에서 트랜잭션 메서드가 돌면 둘 다 셉니다.
+ * 다른 스레드에서 실행된 SQL은 propagate()로 감싼 작업(병렬 count 등)이나 enter()한 스레드(비동기 응답)만 셉니다.
+ * 그래서 범위 하나에 여러 스레드가 동시에 셀 수 있어 값은 범위 객체로 잠급니다.
+ */
+public final class StatementScope {
+    private static final ThreadLocal<Deque<StatementScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final String CALLER_PACKAGE = "study.querydsl.";
+    private static final String MONITORING_PACKAGE = "study.querydsl.monitoring.";
+
+    private final String name;
+    private int total;
+    private final Map<String, StatementCount> statements = new LinkedHashMap<>();
+
+    private StatementScope(String name) {
+        this.name = name;
+    }
+
+    public static StatementScope open(String name) {
+        StatementScope scope = new StatementScope(name);
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    /**
+     * 이미 연 범위를 지금 스레드에서도 셉니다. (비동기 요청의 응답을 쓰는 스레드 등) 다 쓰면 그 스레드에서 close()
+     */
+    public StatementScope enter() {
+        SCOPES.get().push(this);
+        return this;
+    }
+
+    public void close() {
+        Deque<StatementScope> scopes = SCOPES.get();
+        scopes.remove(this);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    /**
+     * 지금 스레드에 열려있는 범위들을 task를 실행하는 스레드에서도 열어둡니다. 열린 범위가 없으면 task 그대로
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Deque<StatementScope> scopes = SCOPES.get();
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+            return task;
+        }
+        Deque<StatementScope> captured = new ArrayDeque<>(scopes);
+        return () -> {
+            Deque<StatementScope> previous = SCOPES.get();
+            SCOPES.set(new ArrayDeque<>(captured));
+            try {
+                return task.call();
+            } finally {
+                if (previous.isEmpty()) {
+                    SCOPES.remove();
+                } else {
+                    SCOPES.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 파라미터가 ?로 남아있는 SQL이라 문자열 자체가 쿼리 모양입니다.
+     */
+    static void record(String sql) {
+        Deque<StatementScope> scopes = SCOPES.get();
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+            return;
+        }
+        String callSite = null;
+        for (StatementScope scope : scopes) {
+            synchronized (scope) {
+                StatementCount count = scope.statements.get(sql);
+                if (count == null) {
+                    if (callSite == null) {
+                        callSite = callSite();
+                    }
+                    count = new StatementCount(callSite);
+                    scope.statements.put(sql, count);
+                }
+                count.increment();
+                scope.total++;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized Map<String, StatementCount> getStatements() {
+        Map<String, StatementCount> copy = new LinkedHashMap<>();
+        statements.forEach((sql, count) -> copy.put(sql, count.copy()));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * 처음 이 SQL을 실행시킨 애플리케이션 코드 위치
+     */
+    private static String callSite() {
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith(CALLER_PACKAGE) && !className.startsWith(MONITORING_PACKAGE) && !className.contains("$$")) {
+                return element.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    public static final class StatementCount {
+        private final String callSite;
+        private int count;
+
+        private StatementCount(String callSite) {
+            this.callSite = callSite;
+        }
+
+        private void increment() {
+            count++;
+        }
+
+        private StatementCount copy() {
+            StatementCount copy = new StatementCount(callSite);
+            copy.count = count;
+            return copy;
+        }
+
+        public String getCallSite() {
+            return callSite;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
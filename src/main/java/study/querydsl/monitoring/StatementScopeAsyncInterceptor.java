@@ -0,0 +1,33 @@
+package study.querydsl.monitoring;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 비동기 요청(StreamingResponseBody, Callable)을 처리하는 스레드에서도 SqlBudgetFilter가 연 요청 범위로 SQL을 셉니다.
+ * preProcess, postProcess 모두 작업을 실행하는 스레드에서 불립니다.
+ */
+public class StatementScopeAsyncInterceptor implements CallableProcessingInterceptor {
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        StatementScope scope = scopeOf(request);
+        if (scope != null) {
+            scope.enter();
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        StatementScope scope = scopeOf(request);
+        if (scope != null) {
+            scope.close();
+        }
+    }
+
+    private static StatementScope scopeOf(NativeWebRequest request) {
+        return (StatementScope) request.getAttribute(SqlBudgetFilter.SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
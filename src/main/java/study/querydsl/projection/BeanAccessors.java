@@ -0,0 +1,186 @@
+package study.querydsl.projection;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 클래스 하나의 기본 생성자, setter, 필드 접근자
+ * 처음 쓸 때 LambdaMetafactory로 일반 람다(Supplier, BiConsumer)를 만들어 두고, 클래스별로 캐시합니다.
+ * 그 다음부터는 리플렉션 없이 보통 메서드 호출과 같습니다.
+ * public이 아니라 람다를 만들 수 없는 생성자, setter는 setAccessible 후 MethodHandle로,
+ * 필드는 QBean과 같이 Field.set으로 접근합니다.
+ */
+final class BeanAccessors {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType SUPPLIER_SAM = MethodType.methodType(Object.class);
+    private static final MethodType CONSUMER_SAM = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<BeanAccessors> CACHE = new ClassValue<BeanAccessors>() {
+        @Override
+        protected BeanAccessors computeValue(Class<?> type) {
+            return new BeanAccessors(type);
+        }
+    };
+
+    private final Class<?> type;
+    private volatile Supplier<Object> constructor;
+    private final ConcurrentMap<String, BiConsumer<Object, Object>> setters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, BiConsumer<Object, Object>> fields = new ConcurrentHashMap<>();
+
+    private BeanAccessors(Class<?> type) {
+        this.type = type;
+    }
+
+    static BeanAccessors of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    Supplier<Object> constructor() {
+        Supplier<Object> supplier = constructor;
+        if (supplier == null) {
+            supplier = createConstructor();
+            constructor = supplier;
+        }
+        return supplier;
+    }
+
+    BiConsumer<Object, Object> setter(String property) {
+        return setters.computeIfAbsent(property, this::createSetter);
+    }
+
+    BiConsumer<Object, Object> field(String name) {
+        return fields.computeIfAbsent(name, this::createField);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Supplier<Object> createConstructor() {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("추상 타입은 만들 수 없습니다: " + type.getName());
+        }
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + "에 기본 생성자가 없습니다.", e);
+        }
+        if (Modifier.isPublic(constructor.getModifiers()) && Modifier.isPublic(type.getModifiers())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+                        SUPPLIER_SAM, handle, MethodType.methodType(type));
+                return (Supplier<Object>) site.getTarget().invoke();
+            } catch (LambdaConversionException | IllegalAccessException e) {
+                //아래 MethodHandle로
+            } catch (Throwable e) {
+                throw new IllegalStateException("cannot generate constructor for " + type.getName(), e);
+            }
+        }
+        constructor.setAccessible(true);
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflectConstructor(constructor).asType(SUPPLIER_SAM);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot access constructor " + type.getName() + "()", e);
+        }
+        return () -> {
+            try {
+                return handle.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private BiConsumer<Object, Object> createSetter(String property) {
+        Method setter = findSetter(property);
+        Class<?> valueType = MethodType.methodType(setter.getParameterTypes()[0]).wrap().returnType();
+        if (Modifier.isPublic(setter.getModifiers()) && Modifier.isPublic(type.getModifiers())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(setter);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+                        CONSUMER_SAM, handle, MethodType.methodType(void.class, type, valueType));
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            } catch (LambdaConversionException | IllegalAccessException e) {
+                //아래 MethodHandle로
+            } catch (Throwable e) {
+                throw new IllegalStateException("cannot generate setter " + type.getName() + "." + property, e);
+            }
+        }
+        setter.setAccessible(true);
+        try {
+            return invoker(LOOKUP.unreflect(setter).asType(CONSUMER_SAM));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot access setter " + type.getName() + "." + property, e);
+        }
+    }
+
+    /**
+     * 필드는 Field.set으로 대입합니다.
+     * 필드마다 다른 MethodHandle을 람다로 감싸면 JIT이 상수로 접어주지 못해서 Field.set보다 빠르다는 근거가 없습니다.
+     */
+    private BiConsumer<Object, Object> createField(String name) {
+        Field field = findField(name);
+        field.setAccessible(true);
+        return (bean, value) -> {
+            try {
+                field.set(bean, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("cannot access field " + type.getName() + "." + name, e);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> invoker(MethodHandle handle) {
+        return (bean, value) -> {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private Method findSetter(String property) {
+        try {
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (descriptor.getName().equals(property) && descriptor.getWriteMethod() != null) {
+                    return descriptor.getWriteMethod();
+                }
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(type.getName(), e);
+        }
+        throw new IllegalArgumentException(type.getName() + "에 " + property + " setter가 없습니다.");
+    }
+
+    private Field findField(String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                //상위 클래스에서 찾음
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + "에 " + name + " 필드가 없습니다.");
+    }
+}
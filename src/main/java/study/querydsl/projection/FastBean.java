@@ -0,0 +1,89 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Projections.bean / Projections.fields 와 같은 규칙(경로 이름이나 as() 별칭 = 프로퍼티 이름)으로 DTO를 채우는 FactoryExpression
+ * QBean은 행마다 리플렉션(Method.invoke)으로 setter를 부르지만, 이쪽은 BeanAccessors가 만들어둔 람다를 호출합니다.
+ * fields()는 QBean과 같이 Field.set으로 대입합니다.
+ * null 값은 QBean처럼 건너뜁니다. (primitive 필드는 기본값 유지)
+ */
+public class FastBean<T> extends FactoryExpressionBase<T> {
+    private final List<Expression<?>> args;
+    private final boolean fieldAccess;
+    private final Supplier<Object> constructor;
+    private final BiConsumer<Object, Object>[] accessors;
+
+    @SuppressWarnings("unchecked")
+    FastBean(Class<? extends T> type, boolean fieldAccess, Expression<?>... args) {
+        super(type);
+        this.args = Collections.unmodifiableList(Arrays.asList(args));
+        this.fieldAccess = fieldAccess;
+        BeanAccessors beanAccessors = BeanAccessors.of(type);
+        this.constructor = beanAccessors.constructor();
+        this.accessors = new BiConsumer[args.length];
+        for (int i = 0; i < args.length; i++) {
+            String property = propertyName(args[i]);
+            accessors[i] = fieldAccess ? beanAccessors.field(property) : beanAccessors.setter(property);
+        }
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... values) {
+        Object bean = constructor.get();
+        for (int i = 0; i < accessors.length; i++) {
+            Object value = values[i];
+            if (value != null) {
+                accessors[i].accept(bean, value);
+            }
+        }
+        return (T) bean;
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof FastBean)) {
+            return false;
+        }
+        FastBean<?> other = (FastBean<?>) obj;
+        return getType().equals(other.getType()) && fieldAccess == other.fieldAccess && args.equals(other.args);
+    }
+
+    private static String propertyName(Expression<?> expr) {
+        if (expr instanceof Path) {
+            return ((Path<?>) expr).getMetadata().getName();
+        }
+        if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+            Expression<?> alias = ((Operation<?>) expr).getArg(1);
+            if (alias instanceof Path) {
+                return ((Path<?>) alias).getMetadata().getName();
+            }
+        }
+        throw new IllegalArgumentException("경로나 as(별칭)만 쓸 수 있습니다: " + expr);
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+
+/**
+ * Projections.bean / Projections.fields 대신 쓰는 프로젝션 (생성자, setter를 리플렉션 없이 호출)
+ * 사용법은 같습니다: queryFactory.select(FastProjections.bean(MemberDto.class, member.username, member.age))
+ * 접근자는 DTO 클래스별로 한 번만 만들어서 캐시합니다.
+ */
+public final class FastProjections {
+
+    private FastProjections() {
+    }
+
+    /**
+     * 기본 생성자 + setter
+     */
+    public static <T> FastBean<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        return new FastBean<>(type, false, exprs);
+    }
+
+    /**
+     * 기본 생성자 + 필드 직접 대입 (setter가 없어도 됨, 대입은 QBean과 같은 Field.set)
+     */
+    public static <T> FastBean<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        return new FastBean<>(type, true, exprs);
+    }
+}
@@ -1,19 +1,32 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberColumns;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
 import study.querydsl.entity.Member;
 
 import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -27,18 +40,24 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamIdResolver teamIdResolver;
+    private final MemberSearchCache searchCache;
+    private final UsernameIndex usernameIndex;
 
     public void save(Member member) {
         em.persist(member);
     }
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl(){
         return  queryFactory
                 .selectFrom(member)
@@ -46,23 +65,24 @@ public class MemberJpaRepository {
     }
 
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
                 .getResultList();
     }
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username){
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
                 .fetch();
     }
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
 
         BooleanBuilder builder = new BooleanBuilder();
-        if(StringUtils.hasText(condition.getUsername())){ //StringUtils는 값이 null 또는 ""일때 전부.
-            builder.and(member.username.eq(condition.getUsername()));
-        }
+        builder.and(usernameIndex.predicate(condition)); //회원명이 없으면 null - 아무것도 안 붙음
         if(hasText(condition.getTeamName())){
             builder.and(team.name.eq(condition.getTeamName()));
         }
@@ -88,8 +108,25 @@ public class MemberJpaRepository {
     }
     /**
      * 동적 쿼리와 성능 최적화 조회 - Where절 파라미터 사용
+     * 팀 이름은 먼저 팀 id로 바꿔서 member.team.id로 거릅니다. 없는 팀이면 조회하지 않습니다.
+     * 같은 조건은 MemberSearchCache에서 돌려줍니다. 캐시 키와 쿼리가 같은 조건을 보도록 먼저 정규화합니다.
      */
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSearchCondition normalized = condition.normalized();
+        return searchCache.get("jpa.search", normalized, Pageable.unpaged(),
+                () -> Collections.unmodifiableList(fetchSearch(normalized)));
+    }
+
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition) {
+        Long teamId = null;
+        if (hasText(condition.getTeamName())) {
+            Optional<Long> resolved = teamIdResolver.resolve(condition.getTeamName());
+            if (!resolved.isPresent()) {
+                return Collections.emptyList();
+            }
+            teamId = resolved.get();
+        }
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -99,18 +136,138 @@ public class MemberJpaRepository {
                         team.name.as("teamName")))
                 .from(member)
                 .leftJoin(member.team,team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                .where(usernameIndex.predicate(condition),
+                        teamIdEq(teamId),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
                 .fetch();
     }
 
-    private BooleanExpression userNameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) :  null;
+    /**
+     * 대량 분석용 열(column) 조회 - 엔티티, DTO, Object[] 행 없이 JDBC ResultSet에서 바로 배열에 채웁니다.
+     * JPQL은 행마다 Object[]와 박싱된 값을 만들기 때문에 네이티브 SQL을 씁니다.
+     * 영속성 컨텍스트를 거치지 않으니 아직 flush 안 된 변경은 보이지 않습니다.
+     */
+    @Transactional(readOnly = true)
+    public MemberColumns searchColumns(MemberSearchCondition condition, int fetchSize) {
+        MemberSearchCondition normalized = condition.normalized();
+        Long teamId = null;
+        if (hasText(normalized.getTeamName())) {
+            Optional<Long> resolved = teamIdResolver.resolve(normalized.getTeamName());
+            if (!resolved.isPresent()) {
+                return MemberColumns.builder().build();
+            }
+            teamId = resolved.get();
+        }
+        StringBuilder sql = new StringBuilder("select m.member_id, m.username, m.age, m.team_id, t.name" +
+                " from member m left join team t on t.team_id = m.team_id where 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (hasText(normalized.getUsername())
+                && !appendUsername(sql, params, normalized.getUsernameMatch(), normalized.getUsername())) {
+            return MemberColumns.builder().build();
+        }
+        if (teamId != null) {
+            sql.append(" and m.team_id = ?");
+            params.add(teamId);
+        }
+        if (normalized.getAgeGoe() != null) {
+            sql.append(" and m.age >= ?");
+            params.add(normalized.getAgeGoe());
+        }
+        if (normalized.getAgeLoe() != null) {
+            sql.append(" and m.age <= ?");
+            params.add(normalized.getAgeLoe());
+        }
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    MemberColumns.Builder columns = MemberColumns.builder(); //fetch size는 한 번에 받아오는 행 수라 전체 건수와 무관
+                    while (resultSet.next()) {
+                        //team_id가 null이면 getLong은 0 (= MemberColumns.NO_TEAM)
+                        columns.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3),
+                                resultSet.getLong(4), resultSet.getString(5));
+                    }
+                    return columns.build();
+                }
+            }
+        });
+    }
+
+    /**
+     * 스트리밍 조회 - 결과를 List로 모으지 않고 한 건씩 action에 넘깁니다.
+     * iterate()는 하이버네이트 ScrollableResults(FORWARD_ONLY)로 동작하고,
+     * JDBC fetchSize 만큼씩만 드라이버가 가져오기 때문에 결과 크기와 상관없이 메모리가 일정합니다.
+     * 커서가 열려있는 동안 커넥션이 필요하므로 트랜잭션 안에서 끝까지 읽습니다.
+     */
+    @Transactional(readOnly = true)
+    public long searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> action) {
+        MemberSearchCondition normalized = condition.normalized();
+        Long teamId = null;
+        if (hasText(normalized.getTeamName())) {
+            Optional<Long> resolved = teamIdResolver.resolve(normalized.getTeamName());
+            if (!resolved.isPresent()) {
+                return 0;
+            }
+            teamId = resolved.get();
+        }
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> iterator = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team,team)
+                .where(usernameIndex.predicate(normalized),
+                        teamIdEq(teamId),
+                        ageGoe(normalized.getAgeGoe()),
+                        ageLoe(normalized.getAgeLoe()))
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .iterate()) {
+            //DTO 프로젝션이라 영속성 컨텍스트에 쌓이는 엔티티가 없습니다. (em.clear()를 하면 부른 쪽 트랜잭션의 변경까지 버려짐)
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * UsernameIndex.predicate()와 같은 조건을 네이티브 SQL로 - PREFIX/CONTAINS는 후보 id로 좁히고 like로 한번 더 확인합니다.
+     * @return 후보가 하나도 없으면 false (조회할 필요 없음)
+     */
+    private boolean appendUsername(StringBuilder sql, List<Object> params, UsernameMatch match, String username) {
+        if (match == UsernameMatch.EXACT) {
+            sql.append(" and m.username = ?");
+            params.add(username);
+            return true;
+        }
+        Optional<Set<Long>> candidates = usernameIndex.candidates(match, username);
+        if (candidates.isPresent()) {
+            if (candidates.get().isEmpty()) {
+                return false;
+            }
+            StringJoiner in = new StringJoiner(", ", " and m.member_id in (", ")");
+            for (Long id : candidates.get()) {
+                in.add("?");
+                params.add(id);
+            }
+            sql.append(in);
+        }
+        sql.append(" and m.username like ? escape '").append(UsernameMatch.LIKE_ESCAPE).append("'");
+        params.add(match.likePattern(username));
+        return true;
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) :  null;
+
+    private BooleanExpression teamIdEq(Long teamId) {
+        return teamId != null ? member.team.id.eq(teamId) : null;
     }
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
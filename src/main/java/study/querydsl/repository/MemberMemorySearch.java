@@ -0,0 +1,221 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원/팀을 메모리에 들고 searchPageComplex를 DB 없이 답하는 검색 엔진 (member.search.memory.enabled)
+ * 대시보드처럼 읽기가 압도적으로 많은 곳용입니다.
+ *
+ * 원본은 id -> (회원명, 나이, 팀 id), 팀 id -> 팀 이름 맵이고, 조회는 여기서 만든 열 스냅샷(MemberMemorySnapshot)으로 합니다.
+ * MemberMemorySearchUpdater가 커밋된 변경을 원본에 반영하면 스냅샷이 낡은 것으로 표시되고,
+ * 다음 조회가 새로 만들기 때문에 커밋 뒤의 조회는 항상 커밋된 내용을 봅니다.
+ * 원본은 동시 맵이라 스냅샷은 원본 잠금(this) 밖에서 만들고, 그동안 커밋 리스너(change)는 기다리지 않습니다.
+ * 스냅샷을 만드는 비용은 회원 수에 비례(나이 정렬은 n log n)하니 쓰기가 잦으면 켜지 마세요.
+ * JPQL 벌크 쿼리는 이벤트가 없어서 MemberRepositoryImpl이 벌크 작업을 마치면 reload()로 다시 읽습니다. (작업 중에는 이전 내용)
+ *
+ * 쓰기 트랜잭션 안에서는 커밋 안 된 데이터가 보여야 하니 JPA 경로로 갑니다. (isServing)
+ * 메트릭: member.search.memory.size, member.search.memory.snapshots (스냅샷을 다시 만든 횟수)
+ */
+@Slf4j
+@Component
+public class MemberMemorySearch {
+    private final JPAQueryFactory queryFactory;
+    private final PendingRebuild<Store> pendingRebuild;
+    private final UsernameIndex usernameIndex;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int fetchSize;
+
+    private Store store; //null이면 아직 읽기 전 (this로 잠금)
+    private volatile boolean loaded;
+    private volatile long version; //원본이 바뀔 때마다 +1 (쓰기는 this로 잠금)
+    private volatile MemberMemorySnapshot snapshot;
+    private final Object snapshotLock = new Object(); //스냅샷은 한 번에 하나만 만듦
+
+    public MemberMemorySearch(EntityManager em, PlatformTransactionManager transactionManager,
+                              UsernameIndex usernameIndex, MeterRegistry registry,
+                              @Value("${member.search.memory.enabled:false}") boolean enabled,
+                              @Value("${member.stream.fetch-size:500}") int fetchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.pendingRebuild = new PendingRebuild<>(this, transactionManager);
+        this.usernameIndex = usernameIndex;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.fetchSize = fetchSize;
+        registry.gauge("member.search.memory.size", this, search -> {
+            MemberMemorySnapshot current = search.snapshot;
+            return current == null ? 0 : current.size();
+        });
+    }
+
+    /**
+     * 팀, 회원 전체를 다시 읽습니다. 읽는 동안 커밋된 변경은 PendingRebuild가 모아뒀다가 다시 적용합니다.
+     * bulk() 직후에도 불리는데, primary에서 읽으니 복제본 지연으로 커밋 전 데이터를 올리지 않습니다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Store fresh;
+        try {
+            fresh = pendingRebuild.rebuild(this::load, loadedStore -> {
+                store = loadedStore;
+                version++;
+                loaded = true;
+            });
+        } catch (RuntimeException e) {
+            log.warn("member memory search reload failed, searching by JPA", e);
+            return;
+        }
+        log.info("member memory search loaded: members={}, teams={}, elapsed={}ms",
+                fresh.members.size(), fresh.teams.size(), System.currentTimeMillis() - start);
+    }
+
+    private Store load() {
+        Store fresh = new Store();
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            fresh.teams.put(row.get(team.id), row.get(team.name));
+        }
+        try (CloseableIterator<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                fresh.members.put(row.get(member.id),
+                        new Row(row.get(member.username), row.get(member.age), row.get(member.team.id)));
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * 켜져 있고, 다 읽었고, 쓰기 트랜잭션 밖이면 true
+     */
+    public boolean isServing() {
+        if (!enabled || !loaded) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * MemberRepositoryImpl.searchPageComplex와 같은 페이지를 돌려줍니다. (정렬은 MemberSort 규칙 그대로)
+     */
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        if (!loaded) {
+            throw new IllegalStateException("member memory search is not loaded (member.search.memory.enabled=" + enabled + ")");
+        }
+        Optional<Set<Long>> usernameCandidates = Optional.empty();
+        if (hasText(condition.getUsername()) && condition.getUsernameMatch() != UsernameMatch.EXACT) {
+            usernameCandidates = usernameIndex.candidates(condition.getUsernameMatch(), condition.getUsername());
+        }
+        return snapshot().search(condition, pageable, usernameCandidates);
+    }
+
+    public void putMember(Long id, String username, int age, Long teamId) {
+        change(store -> store.members.put(id, new Row(username, age, teamId)));
+    }
+
+    public void removeMember(Long id) {
+        change(store -> store.members.remove(id));
+    }
+
+    public void putTeam(Long id, String name) {
+        change(store -> store.teams.put(id, name));
+    }
+
+    public void removeTeam(Long id) {
+        change(store -> store.teams.remove(id));
+    }
+
+    private synchronized void change(Consumer<Store> change) {
+        if (!enabled) {
+            return;
+        }
+        pendingRebuild.record(change);
+        if (store != null) {
+            change.accept(store);
+            version++;
+        }
+    }
+
+    /**
+     * 원본이 바뀌었으면 새로 만듭니다. 만드는 동안 다른 조회는 기다립니다. (낡은 스냅샷을 돌려주지 않음)
+     * 버전을 먼저 읽고 원본을 읽기 때문에, 스냅샷에는 적어도 그 버전까지의 변경이 들어있습니다.
+     * (읽는 사이에 들어온 변경이 섞여도 버전이 올라가 있으니 다음 조회가 다시 만듦)
+     */
+    private MemberMemorySnapshot snapshot() {
+        MemberMemorySnapshot current = snapshot;
+        if (current != null && current.version() == version) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            long builtVersion;
+            Store source;
+            synchronized (this) {
+                builtVersion = version;
+                source = store;
+            }
+            current = snapshot;
+            if (current != null && current.version() == builtVersion) {
+                return current;
+            }
+            current = new MemberMemorySnapshot(builtVersion,
+                    new ArrayList<>(source.members.entrySet()), new HashMap<>(source.teams));
+            snapshot = current;
+            registry.counter("member.search.memory.snapshots").increment();
+            return current;
+        }
+    }
+
+    @lombok.Value
+    static class Row {
+        String username;
+        int age;
+        Long teamId;
+    }
+
+    /**
+     * 쓰기는 this 잠금 안에서만, 읽기(스냅샷 만들기)는 잠금 없이 합니다.
+     */
+    private static final class Store {
+        private final NavigableMap<Long, Row> members = new ConcurrentSkipListMap<>();
+        private final Map<Long, String> teams = new ConcurrentHashMap<>();
+    }
+}
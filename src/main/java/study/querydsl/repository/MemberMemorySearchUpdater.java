@@ -0,0 +1,55 @@
+package study.querydsl.repository;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 회원/팀이 커밋된 뒤에 MemberMemorySearch에 반영하는 하이버네이트 이벤트 리스너
+ * 롤백된 변경이 메모리에 들어가지 않도록 커밋 후(POST_COMMIT_*)에만 반영합니다.
+ */
+@Component
+public class MemberMemorySearchUpdater extends PostCommitEntityListener {
+    private final MemberMemorySearch memorySearch;
+
+    public MemberMemorySearchUpdater(EntityManagerFactory emf, MemberMemorySearch memorySearch) {
+        super(emf, Member.class, Team.class);
+        this.memorySearch = memorySearch;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        put(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        put(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            memorySearch.removeMember((Long) event.getId());
+        } else if (entity instanceof Team) {
+            memorySearch.removeTeam((Long) event.getId());
+        }
+    }
+
+    private void put(Object entity) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            //team은 프록시일 수 있지만 getId()는 초기화하지 않습니다.
+            memorySearch.putMember(member.getId(), member.getUsername(), member.getAge(),
+                    member.getTeam() == null ? null : member.getTeam().getId());
+        } else if (entity instanceof Team) {
+            memorySearch.putTeam(((Team) entity).getId(), ((Team) entity).getName());
+        }
+    }
+}
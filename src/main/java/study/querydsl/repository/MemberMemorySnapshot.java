@@ -0,0 +1,415 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberMemorySearch가 들고 있는 읽기 전용 열(column) 스냅샷
+ * 행 번호(position)는 회원 id 순서입니다. JPA 경로도 MemberSort.normalize가 정렬 끝에 항상 id asc를 붙이니 정렬이 없으면 id 순서라 같은 페이지가 나옵니다.
+ * - ages, teamCodes, usernameCodes: position별 primitive 배열
+ * - 나이: (나이, position) 순으로 정렬한 배열 - 범위는 이진 탐색
+ * - 팀: 팀 이름 -> 팀 번호 -> 소속 position 목록, 회원이 많은 팀은 비트맵도
+ * - 회원명: 사전(같은 이름은 번호 하나) -> 그 이름의 position 목록
+ *
+ * 조건마다 후보 position 수를 보고 가장 적은 조건 하나로 후보를 뽑은 뒤, 나머지 조건은 배열 값으로 확인합니다.
+ * 정렬이 있으면 맞는 position을 모두 모아서 MemberSort 순서(마지막은 id)로 정렬한 뒤 페이지를 자릅니다.
+ * null은 H2 기본값처럼 작은 값으로 칩니다. (asc면 앞, desc면 뒤)
+ */
+final class MemberMemorySnapshot {
+    private static final int NONE = -1;
+    private static final int DENSE_TEAM_RATIO = 64; //회원 64명 중 1명 이상이 속한 팀은 비트맵으로
+
+    private final long version;
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final int[] usernameCodes;
+
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private final Map<String, Integer> teamCodeByName;
+    private final int[] teamStart;
+    private final int[] teamPositions;
+    private final BitSet[] teamBits;
+
+    private final int[] sortedAges;
+    private final int[] agePositions;
+
+    private final String[] usernames;
+    private final Map<String, Integer> usernameCodeByName;
+    private final int[] usernameStart;
+    private final int[] usernamePositions;
+
+    /**
+     * @param version 만들 때의 MemberMemorySearch 원본 버전
+     * @param members id 순서
+     */
+    MemberMemorySnapshot(long version, List<Map.Entry<Long, MemberMemorySearch.Row>> members, Map<Long, String> teams) {
+        this.version = version;
+        size = members.size();
+        memberIds = new long[size];
+        ages = new int[size];
+        teamCodes = new int[size];
+        usernameCodes = new int[size];
+
+        teamIds = new long[teams.size()];
+        teamNames = new String[teams.size()];
+        teamCodeByName = new HashMap<>(teams.size() * 2);
+        Map<Long, Integer> teamCodeById = new HashMap<>(teams.size() * 2);
+        for (Map.Entry<Long, String> team : teams.entrySet()) {
+            int code = teamCodeById.size();
+            teamIds[code] = team.getKey();
+            teamNames[code] = team.getValue();
+            teamCodeById.put(team.getKey(), code);
+            teamCodeByName.put(team.getValue(), code);
+        }
+
+        List<String> usernameDictionary = new ArrayList<>();
+        usernameCodeByName = new HashMap<>();
+        int position = 0;
+        for (Map.Entry<Long, MemberMemorySearch.Row> entry : members) {
+            MemberMemorySearch.Row row = entry.getValue();
+            memberIds[position] = entry.getKey();
+            ages[position] = row.getAge();
+            Integer teamCode = row.getTeamId() == null ? null : teamCodeById.get(row.getTeamId());
+            teamCodes[position] = teamCode == null ? NONE : teamCode;
+            if (row.getUsername() == null) {
+                usernameCodes[position] = NONE;
+            } else {
+                Integer code = usernameCodeByName.get(row.getUsername());
+                if (code == null) {
+                    code = usernameDictionary.size();
+                    usernameDictionary.add(row.getUsername());
+                    usernameCodeByName.put(row.getUsername(), code);
+                }
+                usernameCodes[position] = code;
+            }
+            position++;
+        }
+        usernames = usernameDictionary.toArray(new String[0]);
+
+        teamStart = new int[teamIds.length + 1];
+        teamPositions = groupBy(teamCodes, teamStart);
+        teamBits = new BitSet[teamIds.length];
+        for (int code = 0; code < teamIds.length; code++) {
+            if ((long) (teamStart[code + 1] - teamStart[code]) * DENSE_TEAM_RATIO >= size) {
+                teamBits[code] = toBits(teamPositions, teamStart[code], teamStart[code + 1]);
+            }
+        }
+        usernameStart = new int[usernames.length + 1];
+        usernamePositions = groupBy(usernameCodes, usernameStart);
+
+        //(나이, position)을 long 하나로 묶어서 primitive 정렬
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) ages[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        sortedAges = new int[size];
+        agePositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedAges[i] = (int) (keys[i] >> 32);
+            agePositions[i] = (int) keys[i];
+        }
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param usernameCandidates UsernameIndex가 준 회원 id (PREFIX, CONTAINS에서만, 없으면 empty)
+     */
+    Page<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable, Optional<Set<Long>> usernameCandidates) {
+        Filter filter = new Filter(condition);
+        if (hasText(condition.getTeamName())) {
+            Integer teamCode = teamCodeByName.get(condition.getTeamName());
+            if (teamCode == null) {
+                return Page.empty(pageable);
+            }
+            filter.teamCode = teamCode;
+        }
+        if (filter.usernameMatch == UsernameMatch.EXACT) {
+            Integer usernameCode = usernameCodeByName.get(filter.username);
+            if (usernameCode == null) {
+                return Page.empty(pageable);
+            }
+            filter.usernameCode = usernameCode;
+        }
+
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        List<MemberTeamDto> content = new ArrayList<>(Math.min(limit, 64));
+        List<Sort.Order> orders = MemberSort.normalize(pageable.getSort());
+        if (orders.size() > 1 || orders.get(0).isDescending()) {
+            int[] matched = matches(filter, usernameCandidates);
+            Integer[] sorted = new Integer[matched.length];
+            for (int i = 0; i < matched.length; i++) {
+                sorted[i] = matched[i];
+            }
+            Arrays.sort(sorted, comparator(orders));
+            for (long i = offset; i < sorted.length && content.size() < limit; i++) {
+                content.add(toDto(sorted[(int) i]));
+            }
+            return new PageImpl<>(content, pageable, sorted.length);
+        }
+
+        //id asc면 position 순서 그대로 - 페이지 밖은 세기만 함
+        long total = 0;
+        int[] driver = driver(filter, usernameCandidates);
+        int count = driver == null ? size : driver.length;
+        for (int i = 0; i < count; i++) {
+            int position = driver == null ? i : driver[i];
+            if (!filter.matches(position)) {
+                continue;
+            }
+            if (total >= offset && content.size() < limit) {
+                content.add(toDto(position));
+            }
+            total++;
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private int[] matches(Filter filter, Optional<Set<Long>> usernameCandidates) {
+        int[] driver = driver(filter, usernameCandidates);
+        int count = driver == null ? size : driver.length;
+        int[] matched = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int position = driver == null ? i : driver[i];
+            if (filter.matches(position)) {
+                matched[total++] = position;
+            }
+        }
+        return Arrays.copyOf(matched, total);
+    }
+
+    /**
+     * MemberSort.normalize 순서 - position이 id 순서라 id는 position으로 비교합니다.
+     */
+    private Comparator<Integer> comparator(List<Sort.Order> orders) {
+        Comparator<Integer> comparator = null;
+        for (Sort.Order order : orders) {
+            Comparator<Integer> next;
+            switch (order.getProperty()) {
+                case MemberSort.ID:
+                    next = direction(order, Integer::compare);
+                    break;
+                case MemberSort.AGE:
+                    next = direction(order, (a, b) -> Integer.compare(ages[a], ages[b]));
+                    break;
+                case MemberSort.USERNAME:
+                    next = nullable(order, position -> usernameCodes[position] == NONE ? null : usernames[usernameCodes[position]]);
+                    break;
+                case MemberSort.TEAM_NAME:
+                    next = nullable(order, position -> teamCodes[position] == NONE ? null : teamNames[teamCodes[position]]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("정렬할 수 없는 속성입니다: " + order.getProperty());
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static Comparator<Integer> direction(Sort.Order order, Comparator<Integer> comparator) {
+        return order.isAscending() ? comparator : comparator.reversed();
+    }
+
+    /**
+     * 방향과 null 위치를 같이 정합니다. (null 위치는 방향과 따로라 reversed()로 뒤집으면 안 됨)
+     */
+    private static Comparator<Integer> nullable(Sort.Order order, IntFunction<String> value) {
+        Comparator<String> values = order.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        boolean nullsFirst = order.getNullHandling() == Sort.NullHandling.NATIVE
+                ? order.isAscending()
+                : order.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+        Comparator<String> withNulls = nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+        return (a, b) -> withNulls.compare(value.apply(a), value.apply(b));
+    }
+
+    /**
+     * 후보가 가장 적은 조건의 position 목록 (오름차순), 조건이 없으면 null - 전체
+     */
+    private int[] driver(Filter filter, Optional<Set<Long>> usernameCandidates) {
+        int ageFrom = 0;
+        int ageTo = size;
+        if (filter.ageGoe != null) {
+            ageFrom = lowerBound(filter.ageGoe);
+        }
+        if (filter.ageLoe != null) {
+            ageTo = filter.ageLoe == Integer.MAX_VALUE ? size : lowerBound(filter.ageLoe + 1);
+        }
+        if (ageTo <= ageFrom) {
+            return new int[0];
+        }
+
+        int best = size;
+        int[] driver = null;
+        if (filter.usernameCode != NONE) {
+            int from = usernameStart[filter.usernameCode];
+            int to = usernameStart[filter.usernameCode + 1];
+            best = to - from;
+            driver = Arrays.copyOfRange(usernamePositions, from, to);
+        } else if (usernameCandidates.isPresent() && usernameCandidates.get().size() < best) {
+            best = usernameCandidates.get().size();
+            driver = positionsOf(usernameCandidates.get());
+        }
+        if (filter.teamCode != NONE && teamStart[filter.teamCode + 1] - teamStart[filter.teamCode] < best) {
+            best = teamStart[filter.teamCode + 1] - teamStart[filter.teamCode];
+            driver = Arrays.copyOfRange(teamPositions, teamStart[filter.teamCode], teamStart[filter.teamCode + 1]);
+        }
+        if (ageTo - ageFrom < best) {
+            driver = ageRange(ageFrom, ageTo, filter.teamCode);
+        }
+        return driver;
+    }
+
+    /**
+     * 나이 범위의 position을 id 순서로 - 범위가 넓으면 비트맵에 찍어서 (정렬 대신), 큰 팀 조건이 같이 있으면 비트맵끼리 AND
+     */
+    private int[] ageRange(int from, int to, int teamCode) {
+        int[] positions = Arrays.copyOfRange(agePositions, from, to);
+        if ((long) positions.length * 32 < size) {
+            Arrays.sort(positions);
+            return positions;
+        }
+        BitSet bits = toBits(positions, 0, positions.length);
+        if (teamCode != NONE && teamBits[teamCode] != null) {
+            bits.and(teamBits[teamCode]);
+        }
+        return bits.stream().toArray();
+    }
+
+    private int[] positionsOf(Set<Long> ids) {
+        int[] positions = new int[ids.size()];
+        int count = 0;
+        for (Long id : ids) {
+            int position = Arrays.binarySearch(memberIds, id);
+            if (position >= 0) {
+                positions[count++] = position;
+            }
+        }
+        positions = Arrays.copyOf(positions, count);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * sortedAges에서 age 이상인 첫 위치
+     */
+    private int lowerBound(int age) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedAges[mid] < age) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private MemberTeamDto toDto(int position) {
+        int teamCode = teamCodes[position];
+        int usernameCode = usernameCodes[position];
+        return new MemberTeamDto(memberIds[position],
+                usernameCode == NONE ? null : usernames[usernameCode],
+                ages[position],
+                teamCode == NONE ? null : teamIds[teamCode],
+                teamCode == NONE ? null : teamNames[teamCode]);
+    }
+
+    /**
+     * codes 값(번호)별로 position을 모읍니다. (counting sort - 번호 안에서는 position 순서)
+     * start[code] ~ start[code + 1] 이 그 번호의 구간, NONE은 빠집니다.
+     */
+    private static int[] groupBy(int[] codes, int[] start) {
+        for (int code : codes) {
+            if (code != NONE) {
+                start[code + 1]++;
+            }
+        }
+        for (int code = 1; code < start.length; code++) {
+            start[code] += start[code - 1];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        int[] positions = new int[start[start.length - 1]];
+        for (int position = 0; position < codes.length; position++) {
+            if (codes[position] != NONE) {
+                positions[next[codes[position]]++] = position;
+            }
+        }
+        return positions;
+    }
+
+    private static BitSet toBits(int[] positions, int from, int to) {
+        BitSet bits = new BitSet();
+        for (int i = from; i < to; i++) {
+            bits.set(positions[i]);
+        }
+        return bits;
+    }
+
+    private final class Filter {
+        final String username;
+        final UsernameMatch usernameMatch;
+        final Integer ageGoe;
+        final Integer ageLoe;
+        int usernameCode = NONE;
+        int teamCode = NONE;
+
+        Filter(MemberSearchCondition condition) {
+            this.username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+            this.usernameMatch = username == null ? null : condition.getUsernameMatch();
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+        }
+
+        boolean matches(int position) {
+            if (teamCode != NONE && teamCodes[position] != teamCode) {
+                return false;
+            }
+            if (ageGoe != null && ages[position] < ageGoe) {
+                return false;
+            }
+            if (ageLoe != null && ages[position] > ageLoe) {
+                return false;
+            }
+            if (usernameCode != NONE) {
+                return usernameCodes[position] == usernameCode;
+            }
+            if (username != null) {
+                int code = usernameCodes[position];
+                return code != NONE && usernameMatch.matches(username, usernames[code]);
+            }
+            return true;
+        }
+    }
+}
@@ -4,6 +4,7 @@ package study.querydsl.repository;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
@@ -25,6 +26,7 @@ public class MemberQueryRepository {
     public MemberQueryRepository(EntityManager em){
         this.queryFactory = new JPAQueryFactory(em);
     }
+    @Transactional(readOnly = true) //읽기 전용이면 복제본으로 (datasource.routing)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
@@ -2,15 +2,31 @@ package study.querydsl.repository;
 
 
 import org.springframework.data.domain.Page;
+import study.querydsl.dto.BulkOptions;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.StreamedPage;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
     //구현할 인터페이스만
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    //결과를 모으지 않고 한 건씩 action에 넘기고, 페이지 정보만 돌려줌
+    StreamedPage searchPageStream(MemberSearchCondition condition, Pageable pageable, int fetchSize, Consumer<MemberTeamDto> action);
+    //count 쿼리 없이 다음 페이지 유무만
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    //cursor가 null이면 첫 페이지
+    MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
+    //벌크 작업은 청크마다 트랜잭션을 새로 열기 때문에 트랜잭션 밖에서 호출해야 합니다.
+    BulkResult bulkAddAge(MemberSearchCondition condition, int delta, BulkOptions options);
+    BulkResult bulkDelete(MemberSearchCondition condition, BulkOptions options);
 }
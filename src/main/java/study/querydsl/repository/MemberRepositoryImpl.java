@@ -1,131 +1,365 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkOptions;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.dto.StreamedPage;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
-import static study.querydsl.entity.QTeam.team;
 
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchTemplates searchTemplates;
+    private final TeamIdResolver teamIdResolver;
+    private final ParallelCountExecutor parallelCountExecutor;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate readTransaction;
+    private final MemberSearchCache searchCache;
+    private final SearchCoalescer coalescer;
+    private final UsernameIndex usernameIndex;
+    private final MemberMemorySearch memorySearch;
 
-    public MemberRepositoryImpl(EntityManager em){
+    public MemberRepositoryImpl(EntityManager em, MemberSearchTemplates searchTemplates, TeamIdResolver teamIdResolver,
+                                ParallelCountExecutor parallelCountExecutor, PlatformTransactionManager transactionManager,
+                                MemberSearchCache searchCache, SearchCoalescer coalescer, UsernameIndex usernameIndex,
+                                MemberMemorySearch memorySearch){
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchTemplates = searchTemplates;
+        this.teamIdResolver = teamIdResolver;
+        this.parallelCountExecutor = parallelCountExecutor;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.searchCache = searchCache;
+        this.coalescer = coalescer;
+        this.usernameIndex = usernameIndex;
+        this.memorySearch = memorySearch;
     }
+    /**
+     * 검색 쿼리는 조건 모양별로 미리 만들어 둔 JPQL(MemberSearchTemplates)에 값만 바인딩해서 실행합니다.
+     * 없는 팀 이름이면 바인딩이 비어있으니 회원 쿼리를 날리지 않고 바로 빈 결과를 돌려줍니다.
+     * search, searchPageComplex는 같은 조건이면 MemberSearchCache에서 돌려줍니다.
+     * 캐시 키와 쿼리가 같은 조건을 보도록 조건은 진입점마다 처음에 한 번 정규화합니다. (MemberSearchCondition.normalized)
+     * 스트림, 커서, 벌크도 같이 정규화해야 /v3/members와 /v3/members/stream이 같은 회원을 돌려줍니다.
+     * 캐시에 없을 때 같은 검색이 동시에 들어오면 SearchCoalescer가 한 번만 실행합니다.
+     * 실제 조회만 읽기 전용 트랜잭션(readTransaction)으로 감싸서, 라우팅이 켜져있으면 복제본으로 갑니다.
+     * (메서드에 @Transactional을 붙이면 기다리는 요청도 트랜잭션을 열게 되어 합쳐지지 않습니다.)
+     */
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team,team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        MemberSearchCondition normalized = condition.normalized();
+        return searchCache.get("search", normalized, Pageable.unpaged(),
+                () -> coalescer.execute("search", normalized, Pageable.unpaged(), () -> read(() -> searchTemplates.bind(normalized)
+                        .map(binding -> Collections.unmodifiableList(searchTemplates.fetchContent(em, binding, Pageable.unpaged())))
+                        .orElseGet(Collections::emptyList))));
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchCondition normalized = condition.normalized();
+        return coalescer.execute("searchPageSimple", normalized, pageable, () -> read(() -> fetchPageSimple(normalized, pageable)));
+    }
+
+    private Page<MemberTeamDto> fetchPageSimple(MemberSearchCondition condition, Pageable pageable) {
         //MemberSearchCondition condition은 DTO,
         //파라미터로 Pageable pageable이 넘어오고 있습니다. 조건임.
         /**
          * 스프링 데이터 Pageable은 기본적으로 offset이나 전체 페이지수를 알 수 있습니다.
          */
-
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())  //몇번째 부터 시작할거야.
-                .limit(pageable.getPageSize()) //한번 조회할때 몇개까지 가져올거야.
-                .fetchResults(); // 조회용 쿼리 하나 더 나감
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+        Optional<MemberSearchTemplates.Binding> binding = searchTemplates.bind(condition);
+        if (!binding.isPresent()) {
+            return Page.empty(pageable);
+        }
+        List<MemberTeamDto> content = searchTemplates.fetchContent(em, binding.get(), pageable);
+        //count는 조인 없이 count(member.id)만 날립니다.
+        long total = searchTemplates.fetchCount(em, binding.get());
 
         return new PageImpl<>(content,pageable,total);
     }
 
+    /**
+     * pageable의 정렬은 MemberSort에 있는 속성만 받고 (아니면 IllegalArgumentException), 같은 값끼리는 id 순서입니다.
+     * 내용은 id만 먼저 고른 뒤 그 id만 조인해서 가져옵니다. (MemberSearchTemplates.fetchSortedContent)
+     * 메모리 검색 엔진(MemberMemorySearch)이 켜져 있으면 DB 대신 거기서 답합니다.
+     */
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        //MemberSearchCondition condition은 DTO,
-        //파라미터로 Pageable pageable이 넘어오고 있습니다. 조건임.
-        /**
-         * 스프링 데이터 Pageable은 기본적으로 offset이나 전체 페이지수를 알 수 있습니다.
-         */
+        List<OrderSpecifier<?>> orders = MemberSort.orderSpecifiers(pageable.getSort());
+        MemberSearchCondition normalized = condition.normalized();
+        if (memorySearch.isServing()) {
+            return memorySearch.searchPage(normalized, pageable);
+        }
+        return searchCache.get("searchPageComplex", normalized, pageable,
+                () -> coalescer.execute("searchPageComplex", normalized, pageable, () -> read(() -> fetchPageComplex(normalized, pageable, orders))));
+    }
 
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition condition, Pageable pageable, List<OrderSpecifier<?>> orders) {
+        Optional<MemberSearchTemplates.Binding> binding = searchTemplates.bind(condition);
+        if (!binding.isPresent()) {
+            return Page.empty(pageable);
+        }
+        // 켜져있으면 count를 다른 커넥션에서 먼저 출발시킵니다.
+        Future<Long> parallelCount = parallelCountExecutor.submit(binding.get());
+        try {
+            // 먼저 내용물만 가져옵니다.(카운트 안가져옴)
+            List<MemberTeamDto> content = searchTemplates.fetchSortedContent(em, binding.get(), pageable, orders);
 
-        // 먼저 내용물만 가져옵니다.(카운트 안가져옴)
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())  //몇번째 부터 시작할거야.
-                .limit(pageable.getPageSize()) //한번 조회할때 몇개까지 가져올거야.
-                .fetch(); // 조회용 쿼리 하나 더 나감
-        /**
-         * count용 쿼리를 따로 만듭니다.
-         */
-        JPAQuery<Member> countQuery = queryFactory  //countQuery.fetchCount()까지 해야 카운트 쿼리 날라감.
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+            // count 쿼리는 첫 페이지인데 내용이 size보다 적거나, 마지막 페이지일때는 생략됩니다.
+            LongSupplier count = () -> searchTemplates.fetchCount(em, binding.get());
+            return PageableExecutionUtils.getPage(content, pageable,
+                    parallelCount == null ? count : () -> parallelCountExecutor.await(parallelCount, count));
+        } finally {
+            if (parallelCount != null) {
+                parallelCount.cancel(false); //count가 필요없었으면 아직 시작 안한 작업은 취소
+            }
+        }
+    }
+
+    /**
+     * searchPageComplex와 같은 페이지를 List로 모으지 않고 한 건씩 action에 넘깁니다.
+     * action은 읽기 트랜잭션이 열려있는 동안 호출되니 응답에 바로 쓰는 용도로만 쓰세요.
+     * 내용을 다 넘긴 뒤 count 생략 규칙은 PageableExecutionUtils와 같습니다.
+     * 결과를 들고 있지 않으니 캐시와 coalescer는 타지 않습니다.
+     */
+    @Override
+    public StreamedPage searchPageStream(MemberSearchCondition condition, Pageable pageable, int fetchSize,
+                                         Consumer<MemberTeamDto> action) {
+        MemberSearchCondition normalized = condition.normalized();
+        List<OrderSpecifier<?>> orders = MemberSort.orderSpecifiers(pageable.getSort());
+        return read(() -> {
+            Optional<MemberSearchTemplates.Binding> binding = searchTemplates.bind(normalized);
+            if (!binding.isPresent()) {
+                return new StreamedPage(pageNumber(pageable), pageSize(pageable, 0), 0, 0);
+            }
+            int rows = searchTemplates.scrollContent(em, binding.get(), pageable, orders, fetchSize, action);
+            return new StreamedPage(pageNumber(pageable), pageSize(pageable, rows), rows,
+                    streamedTotal(pageable, rows, () -> searchTemplates.fetchCount(em, binding.get())));
+        });
+    }
+
+    private static long streamedTotal(Pageable pageable, int rows, LongSupplier count) {
+        if (pageable.isUnpaged()) {
+            return rows;
+        }
+        if (pageable.getOffset() == 0 && rows < pageable.getPageSize()) {
+            return rows; //첫 페이지인데 size보다 적으면 그게 전부
+        }
+        if (rows != 0 && rows < pageable.getPageSize()) {
+            return pageable.getOffset() + rows; //마지막 페이지
+        }
+        return count.getAsLong();
+    }
+
+    private static int pageNumber(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getPageNumber() : 0;
+    }
+
+    private static int pageSize(Pageable pageable, int rows) {
+        return pageable.isPaged() ? pageable.getPageSize() : rows;
+    }
+
+    /**
+     * 무한 스크롤용 - 전체 개수가 필요 없으니 count 쿼리를 날리지 않습니다.
+     * size + 1개를 가져와서 하나가 더 있으면 다음 페이지가 있는 것입니다.
+     * offset으로 이어 읽으니 searchPageComplex와 같이 MemberSort로 정렬해서(마지막은 id) 페이지끼리 겹치거나 빠지지 않습니다.
+     */
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<OrderSpecifier<?>> orders = MemberSort.orderSpecifiers(pageable.getSort());
+        MemberSearchCondition normalized = condition.normalized();
+        return coalescer.execute("searchSlice", normalized, pageable, () -> read(() -> fetchSlice(normalized, pageable, orders)));
+    }
+
+    private Slice<MemberTeamDto> fetchSlice(MemberSearchCondition condition, Pageable pageable, List<OrderSpecifier<?>> orders) {
+        Optional<MemberSearchTemplates.Binding> binding = searchTemplates.bind(condition);
+        if (!binding.isPresent()) {
+            return new SliceImpl<>(Collections.emptyList(), pageable, false);
+        }
+        int size = pageable.getPageSize();
+        List<MemberTeamDto> content = searchTemplates.fetchSortedContent(em, binding.get(), pageable.getOffset(), size + 1, orders);
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * 커서(keyset) 기반 페이징
+     * offset은 앞의 row를 전부 읽고 버리기 때문에 뒤 페이지로 갈수록 느려집니다.
+     * 마지막으로 본 (age, id) 다음부터 읽으면 몇번째 페이지든 비용이 같습니다. (MemberSearchTemplates.fetchAfter)
+     */
+    @Override
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        MemberSearchCondition normalized = condition.normalized();
+        List<MemberTeamDto> content = read(() -> searchTemplates.bind(normalized)
+                .map(binding -> searchTemplates.fetchAfter(em, binding, cursor, size + 1)) //하나 더 가져와서 다음 페이지가 있는지 확인
+                .orElseGet(Collections::emptyList));
+
+        if (content.size() <= size) {
+            return new MemberCursorPage(content, null);
+        }
+        List<MemberTeamDto> page = new ArrayList<>(content.subList(0, size));
+        return new MemberCursorPage(page, MemberCursor.of(page.get(size - 1)).encode());
+    }
+
+    private <T> T read(Supplier<T> query) {
+        return readTransaction.execute(status -> query.get());
+    }
 
-        return PageableExecutionUtils.getPage(content, pageable,()->countQuery.fetchCount());
+    /**
+     * 조건에 맞는 회원 나이를 delta 만큼 더합니다.
+     * update 한방으로 넓은 범위에 락을 잡지 않도록 id 순서로 chunkSize 건씩 잘라서 짧은 트랜잭션으로 나눕니다.
+     */
+    @Override
+    public BulkResult bulkAddAge(MemberSearchCondition condition, int delta, BulkOptions options) {
+        return bulk(condition, options, ids -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(member.id.in(ids))
+                .execute());
+    }
+
+    @Override
+    public BulkResult bulkDelete(MemberSearchCondition condition, BulkOptions options) {
+        return bulk(condition, options, ids -> queryFactory
+                .delete(member)
+                .where(member.id.in(ids))
+                .execute());
     }
 
-    private BooleanExpression userNameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) :  null;
+    /**
+     * 청크마다 조건에 맞는 다음 id들을 고르고(keyset), 그 id들에만 벌크 쿼리를 날려 커밋합니다.
+     * 벌크 쿼리는 영속성 컨텍스트를 거치지 않기 때문에 끝나면 호출한 쪽 영속성 컨텍스트(OSIV 등)도 비웁니다.
+     * (Member는 2차 캐시 대상이 아니라 지울 캐시 항목은 없습니다.)
+     * affectedRows는 벌크 쿼리가 실제로 바꾼 행 수입니다. id를 고른 뒤 다른 트랜잭션이 지운 회원은 세지 않습니다.
+     */
+    private BulkResult bulk(MemberSearchCondition condition, BulkOptions options, Function<List<Long>, Long> operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            //바깥 트랜잭션이 잡은 락을 청크 트랜잭션이 기다리게 되고, 바깥 영속성 컨텍스트도 낡게 됩니다.
+            throw new IllegalStateException("벌크 작업은 트랜잭션 밖에서 호출해야 합니다.");
+        }
+        MemberSearchCondition normalized = condition.normalized();
+        long start = System.currentTimeMillis();
+        Long teamId = null;
+        if (hasText(normalized.getTeamName())) {
+            Optional<Long> resolved = teamIdResolver.resolve(normalized.getTeamName());
+            if (!resolved.isPresent()) {
+                return new BulkResult(0, 0, 0);
+            }
+            teamId = resolved.get();
+        }
+        Long filterTeamId = teamId;
+        BooleanExpression usernameMatches = usernameIndex.predicate(normalized);
+        long affected = 0;
+        int chunks = 0;
+        Long lastId = null;
+        try {
+            while (true) {
+                Long afterId = lastId;
+                Chunk chunk = chunkTransaction.execute(status -> {
+                    List<Long> ids = queryFactory
+                            .select(member.id)
+                            .from(member)
+                            .where(usernameMatches,
+                                    teamIdEq(filterTeamId),
+                                    ageGoe(normalized.getAgeGoe()),
+                                    ageLoe(normalized.getAgeLoe()),
+                                    afterId != null ? member.id.gt(afterId) : null)
+                            .orderBy(member.id.asc())
+                            .limit(options.getChunkSize())
+                            .fetch();
+                    return new Chunk(ids, ids.isEmpty() ? 0 : operation.apply(ids));
+                });
+                List<Long> ids = chunk.ids;
+                if (ids.isEmpty()) {
+                    break;
+                }
+                chunks++; //커밋됨
+                searchCache.invalidateAll("bulk"); //커밋된 청크마다 (벌크 쿼리는 하이버네이트 이벤트가 없음)
+                affected += chunk.rows;
+                lastId = ids.get(ids.size() - 1);
+                options.getProgressListener().accept(new BulkResult(affected, chunks, System.currentTimeMillis() - start));
+
+                if (ids.size() < options.getChunkSize() || !throttle(options.getThrottleMillis())) {
+                    break;
+                }
+            }
+        } finally {
+            //중간 청크가 실패해도 앞 청크들은 이미 커밋됐으니 반영합니다.
+            if (chunks > 0) {
+                em.clear(); //OSIV로 열려있는 영속성 컨텍스트가 있으면 낡은 회원이 남지 않도록
+                memorySearch.reload();
+            }
+        }
+        return new BulkResult(affected, chunks, System.currentTimeMillis() - start);
     }
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) :  null;
+
+    /**
+     * 청크 하나 - 고른 id와 벌크 쿼리가 실제로 바꾼 행 수
+     */
+    private static final class Chunk {
+        private final List<Long> ids;
+        private final long rows;
+
+        private Chunk(List<Long> ids, long rows) {
+            this.ids = ids;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * @return 인터럽트되면 false (멈춤)
+     */
+    private static boolean throttle(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private BooleanExpression teamIdEq(Long teamId) {
+        return teamId != null ? member.team.id.eq(teamId) : null;
     }
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
@@ -0,0 +1,168 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.datasource.PrimaryRouting;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색 결과 캐시 (크기 + TTL 제한)
+ * 키는 검색 조건 + Pageable 입니다. 키의 조건과 쿼리의 조건이 달라지지 않도록 키에서는 정규화하지 않고,
+ * 부르는 쪽(MemberRepositoryImpl)이 MemberSearchCondition.normalized()로 한 번 정규화한 조건을 키와 쿼리에 같이 씁니다.
+ * (공백만 다른 이름, 빈 문자열 == 조건 없음)
+ *
+ * 회원/팀이 커밋되면 MemberSearchCacheInvalidator가 영향받는 항목만 지웁니다.
+ * 조회가 도는 동안 무효화가 끼어들면 그 결과는 커밋 전 데이터일 수 있어서 캐시에 남기지 않습니다. (generation)
+ * 쓰기 트랜잭션 안에서는 커밋 안 된 데이터가 보이니 캐시를 거치지 않습니다.
+ *
+ * 메트릭: cache.gets{cache=member.search, result=hit|miss}, cache.evictions, member.search.cache.invalidations{cause}
+ */
+@Component
+public class MemberSearchCache {
+    public static final String CACHE_NAME = "member.search";
+
+    private final TeamIdResolver teamIdResolver;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Cache<Key, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberSearchCache(TeamIdResolver teamIdResolver, MeterRegistry registry,
+                             @Value("${member.search.cache.enabled:true}") boolean enabled,
+                             @Value("${member.search.cache.max-size:1000}") long maxSize,
+                             @Value("${member.search.cache.ttl-ms:30000}") long ttlMillis) {
+        this.teamIdResolver = teamIdResolver;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.cache = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .<Key, Entry>build(), CACHE_NAME);
+    }
+
+    /**
+     * @param method 같은 조건이라도 결과 타입이 다른 메서드끼리 섞이지 않도록 (search, searchPageComplex ...)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        Key key = Key.of(method, condition, pageable);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached.getValue();
+        }
+        long before = generation.get();
+        //복제본은 커밋보다 늦을 수 있어서, 무효화 뒤에 다시 채우는 값은 primary에서 읽습니다.
+        T value = PrimaryRouting.call(loader);
+        if (generation.get() != before) {
+            //조회 중에 커밋된 변경이 있었음 - 커밋 전 데이터일 수 있고, 뒤에 온 요청이 넣은 최신 항목을 덮으면 안 됩니다.
+            return value;
+        }
+        Long teamId = key.getTeamName() == null ? null
+                : PrimaryRouting.call(() -> teamIdResolver.resolve(key.getTeamName())).orElse(null);
+        Entry entry = new Entry(value, teamId);
+        cache.put(key, entry);
+        if (generation.get() != before) {
+            //넣는 사이에 커밋됨 - 이미 지나간 무효화가 이 항목을 놓쳤을 수 있습니다. (자기 항목만 지움)
+            cache.asMap().remove(key, entry);
+        }
+        return value;
+    }
+
+    /**
+     * 무효화할 때마다 1씩 늘어나는 번호 - 이 값을 읽은 뒤에 시작한 조회는 그때까지 커밋된 변경을 봅니다. (SearchCoalescer)
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 회원 한 명이 추가/변경/삭제됐을 때, 그 회원이 결과에 들어갈 수 있었던 항목만 지웁니다.
+     */
+    public void invalidate(String username, Integer age, Long teamId) {
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(entry -> entry.getKey().matches(username, age, teamId, entry.getValue().getTeamId()));
+        registry.counter("member.search.cache.invalidations", "cause", "member").increment();
+    }
+
+    /**
+     * 새 팀이 생기면 그 이름으로 검색했던(없는 팀이라 빈 결과였던) 항목만 지웁니다.
+     */
+    public void invalidateTeamName(String teamName) {
+        generation.incrementAndGet();
+        String name = normalize(teamName);
+        cache.asMap().keySet().removeIf(key -> Objects.equals(key.getTeamName(), name));
+        registry.counter("member.search.cache.invalidations", "cause", "team").increment();
+    }
+
+    /**
+     * 팀 이름이 바뀌면 결과의 teamName이 모두 바뀔 수 있고, 벌크 쿼리는 어떤 회원이 바뀌었는지 알 수 없어서 전부 지웁니다.
+     */
+    public void invalidateAll(String cause) {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        registry.counter("member.search.cache.invalidations", "cause", cause).increment();
+    }
+
+    private static String normalize(String value) {
+        return hasText(value) ? value.trim() : null;
+    }
+
+    @lombok.Value
+    static class Key {
+        String method;
+        String username;
+        UsernameMatch usernameMatch; //username이 없으면 null
+        String teamName;
+        Integer ageGoe;
+        Integer ageLoe;
+        Pageable pageable;
+
+        static Key of(String method, MemberSearchCondition condition, Pageable pageable) {
+            String username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+            String teamName = hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+            return new Key(method, username, username == null ? null : condition.getUsernameMatch(),
+                    teamName, condition.getAgeGoe(), condition.getAgeLoe(), pageable);
+        }
+
+        /**
+         * @param entryTeamId 이 항목을 만들 때 팀 이름으로 찾은 id (없는 팀이었으면 null)
+         */
+        boolean matches(String username, Integer age, Long teamId, Long entryTeamId) {
+            if (this.username != null && !usernameMatch.matches(this.username, username)) {
+                return false;
+            }
+            if (teamName != null && (entryTeamId == null || !entryTeamId.equals(teamId))) {
+                return false;
+            }
+            if (age == null) {
+                return true;
+            }
+            return (ageGoe == null || age >= ageGoe) && (ageLoe == null || age <= ageLoe);
+        }
+    }
+
+    @lombok.Value
+    static class Entry {
+        Object value;
+        Long teamId;
+    }
+}
@@ -0,0 +1,83 @@
+package study.querydsl.repository;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 회원/팀이 커밋된 뒤에 MemberSearchCache를 무효화하는 하이버네이트 이벤트 리스너
+ * 커밋 후(POST_COMMIT_*)에만 지워야 롤백된 변경으로 캐시를 비우거나, 커밋 전 데이터를 다시 채우는 일이 없습니다.
+ * JPQL 벌크 쿼리는 이벤트가 나오지 않아서 벌크 작업 쪽에서 직접 지웁니다.
+ */
+@Component
+public class MemberSearchCacheInvalidator extends PostCommitEntityListener {
+    private final MemberSearchCache searchCache;
+    private final TeamIdResolver teamIdResolver;
+
+    public MemberSearchCacheInvalidator(EntityManagerFactory emf, MemberSearchCache searchCache,
+                                        TeamIdResolver teamIdResolver) {
+        super(emf, Member.class, Team.class);
+        this.searchCache = searchCache;
+        this.teamIdResolver = teamIdResolver;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            invalidate((Member) entity);
+        } else if (entity instanceof Team) {
+            teamIdResolver.forgetUnknown(((Team) entity).getName());
+            searchCache.invalidateTeamName(((Team) entity).getName());
+        }
+    }
+
+    /**
+     * 회원은 바뀌기 전 값으로 걸리던 항목과 바뀐 값으로 걸릴 항목을 모두 지웁니다.
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Team) {
+            teamIdResolver.forgetUnknown(null); //바뀐 이름이 없는 팀으로 기억돼 있을 수 있음
+            searchCache.invalidateAll("team");
+            return;
+        }
+        if (!(entity instanceof Member)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) { //merge 등으로 이전 값을 모르면
+            searchCache.invalidateAll("member");
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Team oldTeam = (Team) oldState[persister.getEntityMetamodel().getPropertyIndex("team")];
+        searchCache.invalidate((String) oldState[persister.getEntityMetamodel().getPropertyIndex("username")],
+                (Integer) oldState[persister.getEntityMetamodel().getPropertyIndex("age")],
+                oldTeam == null ? null : oldTeam.getId());
+        invalidate((Member) entity);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            invalidate((Member) entity);
+        } else if (entity instanceof Team) {
+            searchCache.invalidateAll("team");
+        }
+    }
+
+    private void invalidate(Member member) {
+        //team은 프록시일 수 있지만 getId()는 초기화하지 않습니다.
+        searchCache.invalidate(member.getUsername(), member.getAge(),
+                member.getTeam() == null ? null : member.getTeam().getId());
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import lombok.Value;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 조건의 모양 - 어떤 조건이 들어왔는지만 담고 값은 담지 않습니다.
+ * 모양이 같으면 JPQL도 같기 때문에 쿼리 템플릿의 키로 씁니다.
+ */
+@Value
+public class MemberSearchShape {
+    UsernameFilter usernameFilter;
+    boolean teamName;
+    boolean ageGoe;
+    boolean ageLoe;
+
+    /**
+     * 회원명 조건이 JPQL에 들어가는 모양
+     */
+    public enum UsernameFilter {
+        NONE,
+        /**
+         * username = ?
+         */
+        EQ,
+        /**
+         * username like ? (PREFIX, CONTAINS)
+         */
+        LIKE,
+        /**
+         * id in (UsernameIndex 후보) and username like ?
+         */
+        CANDIDATES
+    }
+
+    /**
+     * 회원명이 PREFIX, CONTAINS면 LIKE까지만 정합니다. 후보 id를 쓸지는 바인딩할 때 인덱스를 보고 정합니다.
+     */
+    public static MemberSearchShape of(MemberSearchCondition condition) {
+        UsernameFilter usernameFilter = UsernameFilter.NONE;
+        if (hasText(condition.getUsername())) {
+            usernameFilter = condition.getUsernameMatch() == UsernameMatch.EXACT ? UsernameFilter.EQ : UsernameFilter.LIKE;
+        }
+        return new MemberSearchShape(
+                usernameFilter,
+                hasText(condition.getTeamName()),
+                condition.getAgeGoe() != null,
+                condition.getAgeLoe() != null);
+    }
+
+    public MemberSearchShape withUsernameFilter(UsernameFilter usernameFilter) {
+        return new MemberSearchShape(usernameFilter, teamName, ageGoe, ageLoe);
+    }
+
+    /**
+     * 메트릭 태그용 이름 - 들어온 조건 이름을 +로 이어붙임 (예: teamName+ageGoe), 없으면 none
+     */
+    public String describe() {
+        StringJoiner joiner = new StringJoiner("+");
+        joiner.setEmptyValue("none");
+        if (usernameFilter == UsernameFilter.EQ) {
+            joiner.add("username");
+        } else if (usernameFilter != UsernameFilter.NONE) {
+            joiner.add("usernameLike");
+        }
+        if (teamName) {
+            joiner.add("teamName");
+        }
+        if (ageGoe) {
+            joiner.add("ageGoe");
+        }
+        if (ageLoe) {
+            joiner.add("ageLoe");
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 회원명 조건 4가지 x 나머지 조건 3개의 있음/없음 8가지
+     */
+    public static List<MemberSearchShape> all() {
+        List<MemberSearchShape> shapes = new ArrayList<>();
+        for (UsernameFilter usernameFilter : UsernameFilter.values()) {
+            for (int bits = 0; bits < 8; bits++) {
+                shapes.add(new MemberSearchShape(
+                        usernameFilter,
+                        (bits & 1) != 0,
+                        (bits & 2) != 0,
+                        (bits & 4) != 0));
+            }
+        }
+        return shapes;
+    }
+}
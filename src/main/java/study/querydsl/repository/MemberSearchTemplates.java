@@ -0,0 +1,561 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPAQueryBase;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.RowSelection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberSearchShape.UsernameFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건 모양(MemberSearchShape)별로 미리 직렬화해 둔 JPQL
+ * JPAQueryFactory로 매번 쿼리를 만들면 요청마다 프로젝션을 새로 만들고 JPQL 문자열로 다시 직렬화합니다.
+ * 값 자리를 Param으로 두고 모양마다 한 번만 직렬화해두면, 요청마다는 파라미터 바인딩만 하면 됩니다.
+ * JPQL 문자열이 항상 같으니 하이버네이트도 쿼리 플랜 캐시에서 바로 찾습니다.
+ * 정렬(MemberSort)이 붙는 쿼리는 모양 + 정렬마다 처음 쓸 때 만들어 둡니다.
+ */
+@Component
+public class MemberSearchTemplates {
+
+    static final Param<String> USERNAME = new Param<>(String.class, "username");
+    static final Param<String> USERNAME_PATTERN = new Param<>(String.class, "usernamePattern");
+    @SuppressWarnings("rawtypes")
+    static final Param<Collection> MEMBER_IDS = new Param<>(Collection.class, "memberIds");
+    static final Param<Long> TEAM_ID = new Param<>(Long.class, "teamId");
+    static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+    static final Param<Integer> CURSOR_AGE = new Param<>(Integer.class, "cursorAge");
+    static final Param<Long> CURSOR_ID = new Param<>(Long.class, "cursorId");
+
+    private static final int MAX_SORTED_TEMPLATES = 1024; //정렬 조합은 요청에 따라 늘어나니 이 이상은 매번 직렬화
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    private final ConcurrentMap<MemberSearchShape, SearchTemplate> contentTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MemberSearchShape, SearchTemplate> countTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SortedShape, SearchTemplate> idTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SortedShape, SearchTemplate> sortedContentTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<OrderSpecifier<?>>, SearchTemplate> byIdTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MemberSearchShape, SearchTemplate> firstCursorTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MemberSearchShape, SearchTemplate> afterCursorTemplates = new ConcurrentHashMap<>();
+    private final TeamIdResolver teamIdResolver;
+    private final UsernameIndex usernameIndex;
+
+    public MemberSearchTemplates(TeamIdResolver teamIdResolver, UsernameIndex usernameIndex) {
+        this.teamIdResolver = teamIdResolver;
+        this.usernameIndex = usernameIndex;
+        //모양이 32가지 뿐이라 시작할 때 전부 만들어 둡니다.
+        for (MemberSearchShape shape : MemberSearchShape.all()) {
+            contentTemplate(shape);
+            countTemplate(shape);
+        }
+    }
+
+    /**
+     * 검색 조건을 템플릿에 넣을 값으로 바꿉니다.
+     * 팀 이름은 natural-id 캐시로 팀 id로 바꾸고, 없는 팀이면 결과가 없으니 empty를 돌려줍니다.
+     * 회원명 PREFIX/CONTAINS는 UsernameIndex가 후보 id를 주면 그 id로 좁히고, 후보가 하나도 없으면 역시 empty입니다.
+     */
+    public Optional<Binding> bind(MemberSearchCondition condition) {
+        MemberSearchShape shape = MemberSearchShape.of(condition);
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if (shape.getUsernameFilter() == UsernameFilter.EQ) {
+            params.put(USERNAME, condition.getUsername());
+        } else if (shape.getUsernameFilter() == UsernameFilter.LIKE) {
+            UsernameMatch match = condition.getUsernameMatch();
+            params.put(USERNAME_PATTERN, match.likePattern(condition.getUsername()));
+            Optional<Set<Long>> candidates = usernameIndex.candidates(match, condition.getUsername());
+            if (candidates.isPresent()) {
+                if (candidates.get().isEmpty()) {
+                    return Optional.empty();
+                }
+                shape = shape.withUsernameFilter(UsernameFilter.CANDIDATES);
+                params.put(MEMBER_IDS, candidates.get());
+            }
+        }
+        if (shape.isTeamName()) {
+            Optional<Long> teamId = teamIdResolver.resolve(condition.getTeamName());
+            if (!teamId.isPresent()) {
+                return Optional.empty();
+            }
+            params.put(TEAM_ID, teamId.get());
+        }
+        if (shape.isAgeGoe()) {
+            params.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (shape.isAgeLoe()) {
+            params.put(AGE_LOE, condition.getAgeLoe());
+        }
+        return Optional.of(new Binding(shape, params));
+    }
+
+    public List<MemberTeamDto> fetchContent(EntityManager em, Binding binding, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return toContent(contentTemplate(binding.shape).createQuery(em, binding.params));
+        }
+        return fetchContent(em, binding, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    public List<MemberTeamDto> fetchContent(EntityManager em, Binding binding, long offset, int limit) {
+        Query query = contentTemplate(binding.shape).createQuery(em, binding.params);
+        query.setFirstResult((int) offset);
+        query.setMaxResults(limit);
+        return toContent(query);
+    }
+
+    /**
+     * searchPageComplex용 정렬된 내용 - deferred join
+     * 페이지면 먼저 조건/정렬/offset/limit을 member.id만 고르는 좁은 쿼리로 처리하고,
+     * 고른 id의 프로젝션만 팀과 조인해서 가져옵니다. offset으로 버리는 앞쪽 행은 조인하지 않고,
+     * 정렬도 넓은 행 대신 (정렬 컬럼, id)로만 하니 정렬 컬럼 인덱스(idx_member_*) 순서로 읽으면 정렬 자체가 빠집니다.
+     * 페이지가 아니면(unpaged) 전부 가져오니 고를 게 없어서 조인한 쿼리 하나로 정렬합니다.
+     * @param orders MemberSort.orderSpecifiers - 마지막은 항상 id
+     */
+    public List<MemberTeamDto> fetchSortedContent(EntityManager em, Binding binding, Pageable pageable,
+                                                  List<OrderSpecifier<?>> orders) {
+        if (pageable.isUnpaged()) {
+            return toContent(sortedContentTemplate(binding.shape, orders).createQuery(em, binding.params));
+        }
+        return fetchSortedContent(em, binding, pageable.getOffset(), pageable.getPageSize(), orders);
+    }
+
+    /**
+     * fetchSortedContent와 같은 deferred join을 offset, limit으로 (searchSlice는 size + 1개)
+     */
+    public List<MemberTeamDto> fetchSortedContent(EntityManager em, Binding binding, long offset, int limit,
+                                                  List<OrderSpecifier<?>> orders) {
+        List<Long> ids = fetchIds(em, binding, offset, limit, orders);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return toContent(byIdQuery(em, orders, ids));
+    }
+
+    /**
+     * fetchSortedContent와 같은 내용을 List로 모으지 않고 한 건씩 action에 넘깁니다. (ScrollableResults, FORWARD_ONLY)
+     * 프로젝션 결과라 영속성 컨텍스트에도 쌓이지 않아서, 한 번에 메모리에 있는 것은 한 행뿐입니다. (페이지면 id 목록도)
+     * @return 넘긴 건수
+     */
+    public int scrollContent(EntityManager em, Binding binding, Pageable pageable, List<OrderSpecifier<?>> orders,
+                             int fetchSize, Consumer<MemberTeamDto> action) {
+        Query query;
+        if (pageable.isUnpaged()) {
+            query = sortedContentTemplate(binding.shape, orders).createQuery(em, binding.params);
+        } else {
+            List<Long> ids = fetchIds(em, binding, pageable.getOffset(), pageable.getPageSize(), orders);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            query = byIdQuery(em, orders, ids);
+        }
+        ScrollableResults results = query.unwrap(org.hibernate.query.Query.class)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        int rows = 0;
+        try {
+            while (results.next()) {
+                action.accept(PROJECTION.newInstance(results.get()));
+                rows++;
+            }
+        } finally {
+            results.close();
+        }
+        return rows;
+    }
+
+    /**
+     * 커서(keyset) 페이지 - (age, id) 순서로 cursor 다음부터 limit개, cursor가 없으면 처음부터
+     */
+    public List<MemberTeamDto> fetchAfter(EntityManager em, Binding binding, MemberCursor cursor, int limit) {
+        Query query;
+        if (cursor == null) {
+            query = cursorTemplate(binding.shape, false).createQuery(em, binding.params);
+        } else {
+            Map<ParamExpression<?>, Object> params = new HashMap<>(binding.params);
+            params.put(CURSOR_AGE, cursor.getAge());
+            params.put(CURSOR_ID, cursor.getMemberId());
+            query = cursorTemplate(binding.shape, true).createQuery(em, params);
+        }
+        query.setMaxResults(limit);
+        return toContent(query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> fetchIds(EntityManager em, Binding binding, long offset, int limit, List<OrderSpecifier<?>> orders) {
+        Query query = idTemplate(binding.shape, orders).createQuery(em, binding.params);
+        query.setFirstResult((int) offset);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    /**
+     * 고른 id는 PK로 찾고, 같은 정렬로 다시 정렬합니다. (마지막이 id라 순서가 하나로 정해짐, 페이지 크기만큼이라 싸다)
+     */
+    private Query byIdQuery(EntityManager em, List<OrderSpecifier<?>> orders, List<Long> ids) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        params.put(MEMBER_IDS, ids);
+        return byIdTemplate(orders).createQuery(em, params);
+    }
+
+    private static List<MemberTeamDto> toContent(Query query) {
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> content = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            content.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return content;
+    }
+
+    public long fetchCount(EntityManager em, Binding binding) {
+        Query query = countTemplate(binding.shape).createQuery(em, binding.params);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * JDBC 쿼리 타임아웃은 초 단위라 올림합니다. 넘으면 드라이버가 쿼리를 멈추고 예외를 던집니다.
+     */
+    public long fetchCount(EntityManager em, Binding binding, long timeoutMillis) {
+        Query query = countTemplate(binding.shape).createQuery(em, binding.params);
+        query.setHint(QueryHints.TIMEOUT_HIBERNATE, (int) Math.max(1, (timeoutMillis + 999) / 1000));
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * IndexAdvisor가 EXPLAIN할 SQL - 검색이 실제로 쓰는 템플릿을 하이버네이트로 SQL로 바꾸고 값은 예시로 채웁니다.
+     * @param usernameMatch 회원명 like 패턴을 만들 때만 씀 (PREFIX, CONTAINS)
+     * @param orders 비어있으면 정렬하지 않는 내용 쿼리, 아니면 MemberSort.orderSpecifiers
+     */
+    public String sampleContentSql(EntityManagerFactory emf, MemberSearchShape shape, UsernameMatch usernameMatch,
+                                   List<OrderSpecifier<?>> orders) {
+        SearchTemplate template = orders.isEmpty() ? contentTemplate(shape) : sortedContentTemplate(shape, orders);
+        return template.toSql(emf, sampleParams(usernameMatch), null);
+    }
+
+    /**
+     * 정렬한 페이지에서 id만 먼저 고르는 쿼리 (fetchSortedContent)
+     */
+    public String sampleIdSql(EntityManagerFactory emf, MemberSearchShape shape, UsernameMatch usernameMatch,
+                              List<OrderSpecifier<?>> orders, int limit) {
+        return idTemplate(shape, orders).toSql(emf, sampleParams(usernameMatch), limit);
+    }
+
+    /**
+     * 커서 페이지 쿼리 (fetchAfter)
+     */
+    public String sampleCursorSql(EntityManagerFactory emf, MemberSearchShape shape, UsernameMatch usernameMatch,
+                                  boolean after, int limit) {
+        return cursorTemplate(shape, after).toSql(emf, sampleParams(usernameMatch), limit);
+    }
+
+    /**
+     * 팀 id, 회원명 후보 id는 조회하지 않고 아무 값이나 넣습니다.
+     */
+    private static Map<ParamExpression<?>, Object> sampleParams(UsernameMatch usernameMatch) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        params.put(USERNAME, "member1");
+        params.put(USERNAME_PATTERN, (usernameMatch != null ? usernameMatch : UsernameMatch.PREFIX).likePattern("member1"));
+        params.put(MEMBER_IDS, Arrays.asList(1L, 2L, 3L));
+        params.put(TEAM_ID, 1L);
+        params.put(AGE_GOE, 20);
+        params.put(AGE_LOE, 40);
+        params.put(CURSOR_AGE, 20);
+        params.put(CURSOR_ID, 1L);
+        return params;
+    }
+
+    String contentJpql(MemberSearchShape shape) {
+        return contentTemplate(shape).jpql;
+    }
+
+    String countJpql(MemberSearchShape shape) {
+        return countTemplate(shape).jpql;
+    }
+
+    String idJpql(MemberSearchShape shape, List<OrderSpecifier<?>> orders) {
+        return idTemplate(shape, orders).jpql;
+    }
+
+    String cursorJpql(MemberSearchShape shape, boolean after) {
+        return cursorTemplate(shape, after).jpql;
+    }
+
+    private SearchTemplate contentTemplate(MemberSearchShape shape) {
+        return contentTemplates.computeIfAbsent(shape, s -> SearchTemplate.compile(
+                new JPAQuery<Void>()
+                        .select(PROJECTION)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(predicates(s))));
+    }
+
+    /**
+     * member -> team은 다대일 left join이라 조인을 빼도 개수가 변하지 않습니다.
+     * 팀 조건도 member.team.id(외래키)로 거르기 때문에 count 쿼리에는 조인이 필요 없고,
+     * 엔티티 대신 count(member.id)만 조회합니다.
+     */
+    private SearchTemplate countTemplate(MemberSearchShape shape) {
+        return countTemplates.computeIfAbsent(shape, s -> SearchTemplate.compile(
+                new JPAQuery<Void>()
+                        .select(member.id.count())
+                        .from(member)
+                        .where(predicates(s))));
+    }
+
+    /**
+     * 팀 이름으로 정렬할 때만 팀을 조인합니다. (팀 조건은 member.team.id로 거름)
+     */
+    private SearchTemplate idTemplate(MemberSearchShape shape, List<OrderSpecifier<?>> orders) {
+        return cached(idTemplates, new SortedShape(shape, orders), () -> {
+            JPAQuery<Long> query = new JPAQuery<Void>()
+                    .select(member.id)
+                    .from(member);
+            if (MemberSort.needsTeam(orders)) {
+                query.leftJoin(member.team, team);
+            }
+            return SearchTemplate.compile(query
+                    .where(predicates(shape))
+                    .orderBy(orders.toArray(new OrderSpecifier<?>[0])));
+        });
+    }
+
+    private SearchTemplate sortedContentTemplate(MemberSearchShape shape, List<OrderSpecifier<?>> orders) {
+        return cached(sortedContentTemplates, new SortedShape(shape, orders), () -> SearchTemplate.compile(
+                new JPAQuery<Void>()
+                        .select(PROJECTION)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(predicates(shape))
+                        .orderBy(orders.toArray(new OrderSpecifier<?>[0]))));
+    }
+
+    private SearchTemplate byIdTemplate(List<OrderSpecifier<?>> orders) {
+        return cached(byIdTemplates, orders, () -> SearchTemplate.compile(
+                new JPAQuery<Void>()
+                        .select(PROJECTION)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(Expressions.booleanOperation(Ops.IN, member.id, MEMBER_IDS))
+                        .orderBy(orders.toArray(new OrderSpecifier<?>[0]))));
+    }
+
+    /**
+     * 커서 키(age, id)와 같은 순서로 정렬해야 다음 페이지가 이어집니다.
+     * (age, id) > (?, ?)는 JPQL이 row value 비교를 지원하지 않아서 풀어서 작성합니다.
+     */
+    private SearchTemplate cursorTemplate(MemberSearchShape shape, boolean after) {
+        return (after ? afterCursorTemplates : firstCursorTemplates).computeIfAbsent(shape, s -> SearchTemplate.compile(
+                new JPAQuery<Void>()
+                        .select(PROJECTION)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(predicates(s))
+                        .where(after ? member.age.gt(CURSOR_AGE).or(member.age.eq(CURSOR_AGE).and(member.id.gt(CURSOR_ID))) : null)
+                        .orderBy(member.age.asc(), member.id.asc())));
+    }
+
+    private static <K> SearchTemplate cached(ConcurrentMap<K, SearchTemplate> templates, K key, Supplier<SearchTemplate> compile) {
+        SearchTemplate template = templates.get(key);
+        if (template != null) {
+            return template;
+        }
+        if (templates.size() >= MAX_SORTED_TEMPLATES) {
+            return compile.get();
+        }
+        return templates.computeIfAbsent(key, k -> compile.get());
+    }
+
+    private static Predicate[] predicates(MemberSearchShape shape) {
+        return new Predicate[]{
+                usernamePredicate(shape.getUsernameFilter()),
+                shape.isTeamName() ? member.team.id.eq(TEAM_ID) : null,
+                shape.isAgeGoe() ? member.age.goe(AGE_GOE) : null,
+                shape.isAgeLoe() ? member.age.loe(AGE_LOE) : null
+        };
+    }
+
+    /**
+     * 후보 id는 PK로 찾고, 인덱스에 남아있던 지난 id(이름 변경, 벌크 삭제)는 like로 한번 더 거릅니다.
+     */
+    private static Predicate usernamePredicate(UsernameFilter filter) {
+        switch (filter) {
+            case EQ:
+                return member.username.eq(USERNAME);
+            case LIKE:
+                return member.username.like(USERNAME_PATTERN, UsernameMatch.LIKE_ESCAPE);
+            case CANDIDATES:
+                return Expressions.booleanOperation(Ops.IN, member.id, MEMBER_IDS)
+                        .and(member.username.like(USERNAME_PATTERN, UsernameMatch.LIKE_ESCAPE));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 템플릿에 바인딩할 값 - bind()로만 만듭니다.
+     */
+    public static final class Binding {
+        private final MemberSearchShape shape;
+        private final Map<ParamExpression<?>, Object> params;
+
+        private Binding(MemberSearchShape shape, Map<ParamExpression<?>, Object> params) {
+            this.shape = shape;
+            this.params = params;
+        }
+
+        public MemberSearchShape getShape() {
+            return shape;
+        }
+    }
+
+    /**
+     * 정렬이 붙는 템플릿의 키
+     */
+    private static final class SortedShape {
+        private final MemberSearchShape shape;
+        private final List<OrderSpecifier<?>> orders;
+
+        private SortedShape(MemberSearchShape shape, List<OrderSpecifier<?>> orders) {
+            this.shape = shape;
+            this.orders = orders;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SortedShape)) {
+                return false;
+            }
+            SortedShape that = (SortedShape) o;
+            return shape.equals(that.shape) && orders.equals(that.orders);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shape, orders);
+        }
+    }
+
+    /**
+     * 직렬화가 끝난 JPQL과 파라미터 위치 정보
+     */
+    private static class SearchTemplate {
+        private static final Pattern PARAMETER = Pattern.compile("\\?(\\d+)|:(\\w+)");
+
+        private final String jpql;
+        private final Map<Object, String> constants;
+
+        private SearchTemplate(String jpql, Map<Object, String> constants) {
+            this.jpql = jpql;
+            this.constants = constants;
+        }
+
+        static SearchTemplate compile(JPAQueryBase<?, ?> query) {
+            JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+            serializer.serialize(query.getMetadata(), false, null);
+            return new SearchTemplate(serializer.toString(), new HashMap<>(serializer.getConstantToLabel()));
+        }
+
+        Query createQuery(EntityManager em, Map<ParamExpression<?>, Object> params) {
+            Query query = em.createQuery(jpql);
+            JPAUtil.setConstants(query, constants, params);
+            return query;
+        }
+
+        /**
+         * 하이버네이트가 이 JPQL로 만드는 SQL(쿼리 플랜 캐시)에 값을 바로 써넣습니다. EXPLAIN용이라 실행에는 쓰지 않습니다.
+         * SQL의 ?는 JPQL에 파라미터가 나오는 순서 그대로이고, limit을 주면 방언(dialect)이 붙인 ?가 그 뒤에 옵니다.
+         */
+        String toSql(EntityManagerFactory emf, Map<ParamExpression<?>, Object> params, Integer limit) {
+            SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+            String sql = sessionFactory.getQueryPlanCache()
+                    .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                    .getSqlStrings()[0];
+            if (limit != null) {
+                RowSelection selection = new RowSelection();
+                selection.setMaxRows(limit);
+                sql = sessionFactory.getJdbcServices().getDialect().getLimitHandler().processSql(sql, selection);
+            }
+            Map<String, Object> labels = new HashMap<>();
+            constants.forEach((constant, label) -> labels.put(label, constant));
+            List<Object> values = new ArrayList<>();
+            Matcher matcher = PARAMETER.matcher(jpql);
+            while (matcher.find()) {
+                Object constant = labels.get(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+                values.add(params.containsKey(constant) ? params.get(constant) : constant);
+            }
+            StringBuilder inlined = new StringBuilder(sql.length());
+            int next = 0;
+            for (char c : sql.toCharArray()) {
+                if (c != '?') {
+                    inlined.append(c);
+                } else {
+                    inlined.append(next < values.size() ? literal(values.get(next++)) : String.valueOf(limit));
+                }
+            }
+            return inlined.toString();
+        }
+
+        private static String literal(Object value) {
+            if (value instanceof Collection) {
+                StringJoiner joiner = new StringJoiner(", ");
+                for (Object element : (Collection<?>) value) {
+                    joiner.add(literal(element));
+                }
+                return joiner.toString();
+            }
+            if (value instanceof String) {
+                return "'" + ((String) value).replace("'", "''") + "'";
+            }
+            return String.valueOf(value);
+        }
+    }
+}
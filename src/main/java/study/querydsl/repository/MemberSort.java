@@ -0,0 +1,103 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색에서 정렬할 수 있는 속성 - Pageable의 Sort를 Querydsl OrderSpecifier로 바꿉니다.
+ * 아무 경로나 받으면 인덱스 없는 컬럼이나 조인을 더 타는 경로로 정렬할 수 있어서 정해둔 속성만 받습니다.
+ *
+ * 같은 값끼리 순서가 매번 같도록 마지막에 항상 id로 정렬합니다. (정렬이 없으면 id 순서)
+ * offset 페이지가 겹치거나 빠지지 않고, 메모리 검색 엔진(MemberMemorySnapshot)도 같은 순서를 냅니다.
+ */
+public final class MemberSort {
+    public static final String ID = "id";
+    public static final String USERNAME = "username";
+    public static final String AGE = "age";
+    public static final String TEAM_NAME = "team.name";
+
+    private static final Map<String, ComparableExpressionBase<?>> PATHS = new LinkedHashMap<>();
+
+    static {
+        PATHS.put(ID, member.id);
+        PATHS.put(USERNAME, member.username);
+        PATHS.put(AGE, member.age);
+        PATHS.put(TEAM_NAME, team.name);
+    }
+
+    private MemberSort() {
+    }
+
+    /**
+     * 정렬할 수 없는 속성은 IllegalArgumentException, 같은 속성이 또 나오면 앞의 것만 씁니다.
+     * 마지막이 id가 아니면 id asc를 붙입니다.
+     */
+    public static List<Sort.Order> normalize(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Sort.Order order : sort) {
+            if (!PATHS.containsKey(order.getProperty())) {
+                throw new IllegalArgumentException("정렬할 수 없는 속성입니다: " + order.getProperty() + " (가능: " + PATHS.keySet() + ")");
+            }
+            if (seen.add(order.getProperty())) {
+                orders.add(order);
+            }
+        }
+        if (!seen.contains(ID)) {
+            orders.add(Sort.Order.asc(ID));
+        }
+        return Collections.unmodifiableList(orders);
+    }
+
+    public static List<OrderSpecifier<?>> orderSpecifiers(Sort sort) {
+        List<OrderSpecifier<?>> specifiers = new ArrayList<>();
+        for (Sort.Order order : normalize(sort)) {
+            specifiers.add(toOrderSpecifier(order));
+        }
+        return Collections.unmodifiableList(specifiers);
+    }
+
+    /**
+     * 팀 이름으로 정렬하면 id만 고르는 쿼리에도 팀 조인이 필요합니다.
+     */
+    static boolean needsTeam(List<OrderSpecifier<?>> specifiers) {
+        for (OrderSpecifier<?> specifier : specifiers) {
+            if (specifier.getTarget().equals(team.name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static OrderSpecifier<?> toOrderSpecifier(Sort.Order order) {
+        return new OrderSpecifier(
+                order.isAscending() ? Order.ASC : Order.DESC,
+                PATHS.get(order.getProperty()),
+                nullHandling(order.getNullHandling()));
+    }
+
+    private static OrderSpecifier.NullHandling nullHandling(Sort.NullHandling nullHandling) {
+        switch (nullHandling) {
+            case NULLS_FIRST:
+                return OrderSpecifier.NullHandling.NullsFirst;
+            case NULLS_LAST:
+                return OrderSpecifier.NullHandling.NullsLast;
+            default:
+                return OrderSpecifier.NullHandling.Default;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.monitoring.StatementScope;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 count 쿼리를 내용 조회와 동시에 실행 (member.search.parallel-count.enabled=true 일 때만)
+ * count는 별도 EntityManager(= 별도 커넥션)로 정해진 크기의 스레드풀에서 실행합니다.
+ * 별도 커넥션이라 커밋된 데이터만 보입니다. 같은 트랜잭션에서 막 저장한 회원은 count에 잡히지 않습니다.
+ * count 쿼리에는 timeout-ms만큼 쿼리 타임아웃을 걸어서, 기다리다 포기한 count가 커넥션을 잡고 계속 돌지 않게 합니다.
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor {
+    private final EntityManagerFactory emf;
+    private final MemberSearchTemplates searchTemplates;
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    public ParallelCountExecutor(EntityManagerFactory emf,
+                                 MemberSearchTemplates searchTemplates,
+                                 @Value("${member.search.parallel-count.enabled:false}") boolean enabled,
+                                 @Value("${member.search.parallel-count.threads:4}") int threads,
+                                 @Value("${member.search.parallel-count.timeout-ms:3000}") long timeoutMillis) {
+        this.emf = emf;
+        this.searchTemplates = searchTemplates;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-count-");
+        threadFactory.setDaemon(true);
+        //커넥션 풀보다 작게 잡아야 내용 조회할 커넥션이 남습니다.
+        //큐에서 기다리다 timeout을 다 쓰고 다시 세면 순서대로 세는 것보다 느려서 큐 없이, 놀고 있는 스레드가 없으면 바로 거절합니다.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 쓰기 트랜잭션 안이면 내용에는 커밋 안 한 회원이 보이는데 별도 커넥션의 count에는 안 보여서 동시에 세지 않습니다.
+     * @return 꺼져있거나, 쓰기 트랜잭션 안이거나, 스레드가 모두 바쁘면 null (호출한 쪽에서 순서대로 count)
+     */
+    public Future<Long> submit(MemberSearchTemplates.Binding binding) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        return submit(() -> count(binding));
+    }
+
+    Future<Long> submit(Callable<Long> count) {
+        try {
+            //요청/트랜잭션의 SQL 예산에 count도 들어가도록 범위를 넘겨줍니다.
+            return executor.submit(StatementScope.propagate(count));
+        } catch (RejectedExecutionException e) {
+            log.debug("count threads are busy, counting sequentially");
+            return null;
+        }
+    }
+
+    /**
+     * 동시에 돌린 count 결과를 기다립니다. 시간 안에 안 끝나면 그 count는 멈추고 fallback으로 직접 셉니다.
+     */
+    public long await(Future<Long> future, LongSupplier fallback) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true); //아직 시작 전이면 빼고, 실행 중이면 인터럽트 (쿼리는 쿼리 타임아웃으로 멈춤)
+            log.warn("parallel count timed out after {}ms, counting sequentially", timeoutMillis);
+            return fallback.getAsLong();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("count 대기 중 인터럽트", e);
+        }
+    }
+
+    private long count(MemberSearchTemplates.Binding binding) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return searchTemplates.fetchCount(em, binding, timeoutMillis);
+        } finally {
+            em.close();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
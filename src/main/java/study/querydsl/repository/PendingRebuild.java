@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.datasource.PrimaryRouting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * DB 전체를 다시 읽어서 메모리 구조를 새로 만드는 동안 커밋된 변경을 모아뒀다가, 새로 만든 것에 다시 적용하는 도우미
+ * UsernameIndex, MemberMemorySearch가 씁니다. 변경을 반영하는 쪽과 같은 잠금(lock)을 씁니다.
+ *
+ * 커밋 리스너가 반영하는 것과 어긋나지 않도록 복제본 지연이 없는 primary에서 읽기 전용 트랜잭션으로 읽습니다.
+ *
+ * @param <S> 새로 만드는 메모리 구조
+ */
+final class PendingRebuild<S> {
+    private final Object lock;
+    private final TransactionTemplate readTransaction;
+
+    private List<Consumer<S>> pending; //다시 만드는 동안 들어온 변경 (lock으로 잠금)
+
+    PendingRebuild(Object lock, PlatformTransactionManager transactionManager) {
+        this.lock = lock;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * load로 새로 만들고, 읽는 동안 record된 변경을 적용한 뒤 잠금 안에서 publish로 넘깁니다.
+     * 읽다 실패하면 모아둔 변경을 버리고 예외를 그대로 던집니다. (publish는 불리지 않음)
+     */
+    S rebuild(Supplier<S> load, Consumer<S> publish) {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+        S fresh;
+        try {
+            fresh = PrimaryRouting.call(() -> readTransaction.execute(status -> load.get()));
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            for (Consumer<S> change : pending) {
+                change.accept(fresh);
+            }
+            pending = null;
+            publish.accept(fresh);
+        }
+        return fresh;
+    }
+
+    /**
+     * 다시 만드는 중이면 change를 모아둡니다. lock을 잡고 부르세요.
+     */
+    void record(Consumer<S> change) {
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 같은 검색(정규화한 조건 + Pageable)이 동시에 들어오면 한 번만 실행하고 결과를 나눠 씁니다. (single-flight)
+ * 처음 들어온 요청(leader)이 자기 스레드에서 쿼리를 실행하고, 나머지(follower)는 커넥션 없이 결과만 기다립니다.
+ * 그래서 트랜잭션 안(이미 커넥션을 잡고 있거나 커밋 안 된 데이터가 보이는)에서는 합치지 않습니다.
+ *
+ * flight는 시작할 때의 MemberSearchCache 무효화 번호(generation)를 들고 있습니다.
+ * 그 뒤에 커밋이 있었으면(지금 번호가 더 크면) 커밋 전 데이터일 수 있으니 붙지 않고 새 flight를 시작합니다.
+ * 붙었다면 그 결과는 요청이 들어오기 전까지 커밋된 것을 모두 본 결과라 캐시에 넣어도 됩니다.
+ *
+ * 메트릭: member.search.coalesce{result=leader|follower|timeout}
+ * follower / (leader + follower) 가 합쳐진 비율입니다.
+ */
+@Slf4j
+@Component
+public class SearchCoalescer {
+    private final boolean enabled;
+    private final long waitTimeoutMillis;
+    private final MemberSearchCache searchCache;
+    private final ConcurrentMap<MemberSearchCache.Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter timeouts;
+
+    public SearchCoalescer(MemberSearchCache searchCache, MeterRegistry registry,
+                           @Value("${member.search.coalesce.enabled:true}") boolean enabled,
+                           @Value("${member.search.coalesce.wait-timeout-ms:3000}") long waitTimeoutMillis) {
+        this.searchCache = searchCache;
+        this.enabled = enabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.leaders = registry.counter("member.search.coalesce", "result", "leader");
+        this.followers = registry.counter("member.search.coalesce", "result", "follower");
+        this.timeouts = registry.counter("member.search.coalesce", "result", "timeout");
+        registry.gauge("member.search.coalesce.in-flight", inFlight, ConcurrentMap::size);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        MemberSearchCache.Key key = MemberSearchCache.Key.of(method, condition, pageable);
+        Flight flight = new Flight(searchCache.generation());
+        Flight running = inFlight.putIfAbsent(key, flight);
+        while (running != null && running.generation < flight.generation) {
+            //커밋 전에 시작한 flight - 붙지 않고 새 flight로 바꿔서 직접 실행합니다.
+            if (inFlight.replace(key, running, flight)) {
+                running = null;
+            } else {
+                running = inFlight.putIfAbsent(key, flight);
+            }
+        }
+        if (running == null) {
+            return lead(key, flight, loader);
+        }
+        try {
+            T value = (T) running.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            followers.increment();
+            return value;
+        } catch (TimeoutException e) {
+            //leader가 너무 오래 걸리면 기다리지 않고 직접 실행합니다.
+            timeouts.increment();
+            log.warn("coalesced {} did not finish in {}ms, running it again", method, waitTimeoutMillis);
+            return loader.get();
+        } catch (ExecutionException e) {
+            //leader가 실패하면 같은 예외로 실패합니다.
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for coalesced " + method, e);
+        }
+    }
+
+    private <T> T lead(MemberSearchCache.Key key, Flight flight, Supplier<T> loader) {
+        leaders.increment();
+        try {
+            T value = loader.get();
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static final class Flight {
+        private final long generation; //시작할 때의 MemberSearchCache.generation()
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
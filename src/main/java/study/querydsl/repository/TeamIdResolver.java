@@ -0,0 +1,91 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.datasource.PrimaryRouting;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 팀 이름 -> 팀 id
+ * Team.name은 @NaturalId라서 2차 캐시(natural-id 캐시)에 있으면 DB에 가지 않고 바로 찾습니다.
+ * 검색 조건의 팀 이름을 먼저 id로 바꿔두면 member.team.id = ? 로 조인 없이 걸러낼 수 있습니다.
+ *
+ * 없는 팀 이름은 natural-id 캐시에 남지 않아서 따로 기억해둡니다. (최대 max-unknown개, 넘으면 비움)
+ * 팀이 커밋되면 MemberSearchCacheInvalidator가 forgetUnknown()으로 지웁니다.
+ * 쓰기 트랜잭션 안에서는 아직 커밋 안 한 팀이 있을 수 있어서 기억한 것을 쓰지도, 새로 기억하지도 않습니다.
+ * 복제본으로 라우팅하면(datasource.routing.enabled) 복제본이 커밋보다 늦을 수 있어서 primary에서 읽었을 때만(PrimaryRouting) 기억합니다.
+ */
+@Component
+public class TeamIdResolver {
+    private final EntityManager em;
+    private final int maxUnknown;
+    private final boolean routing;
+    private final Set<String> unknown = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong(); //팀이 커밋될 때마다 +1
+
+    public TeamIdResolver(EntityManager em,
+                          @Value("${member.search.team-id.max-unknown:1000}") int maxUnknown,
+                          @Value("${datasource.routing.enabled:false}") boolean routing) {
+        this.em = em;
+        this.maxUnknown = maxUnknown;
+        this.routing = routing;
+    }
+
+    /**
+     * 캐시 미스여도 getReference()는 이름 -> id 조회 한 번만 하고, 팀은 프록시로 받아서 읽지 않습니다.
+     * @return 없는 팀이면 empty
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> resolve(String teamName) {
+        //바깥 트랜잭션에 참여하면 바깥 트랜잭션의 읽기 전용 여부가 보임
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && unknown.contains(teamName)) {
+            return Optional.empty();
+        }
+        long started = generation.get();
+        Team team = em.unwrap(Session.class)
+                .bySimpleNaturalId(Team.class)
+                .getReference(teamName);
+        if (team == null) {
+            if (readOnly && (!routing || PrimaryRouting.isForced())) {
+                remember(teamName, started);
+            }
+            return Optional.empty();
+        }
+        return Optional.of(team.getId()); //프록시여도 id는 초기화하지 않고 꺼냄
+    }
+
+    /**
+     * 그 이름의 팀이 커밋됐을 때 - 이름이 바뀌면 어느 이름이 생겼는지 몰라서 null로 전부 지웁니다.
+     */
+    public void forgetUnknown(String teamName) {
+        generation.incrementAndGet();
+        if (teamName == null) {
+            unknown.clear();
+        } else {
+            unknown.remove(teamName);
+        }
+    }
+
+    /**
+     * 조회하는 사이에 팀이 커밋됐으면 기억하지 않습니다. (커밋 전에 읽은 "없음"이 남지 않도록)
+     */
+    private void remember(String teamName, long started) {
+        if (unknown.size() >= maxUnknown) {
+            unknown.clear();
+        }
+        unknown.add(teamName);
+        if (generation.get() != started) {
+            unknown.remove(teamName);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.entity.Team;
+
+public interface TeamRepositoryCustom {
+    //팀을 id 순서로 페이징하고 members까지 채워서 반환 (쿼리 최대 3번: id 페이지, 팀+회원, count)
+    Page<Team> findTeamsWithMembers(Pageable pageable);
+}
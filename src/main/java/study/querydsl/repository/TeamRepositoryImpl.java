@@ -0,0 +1,54 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+    private final JPAQueryFactory queryFactory;
+
+    public TeamRepositoryImpl(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    /**
+     * 컬렉션(team.members)을 fetch join 하면서 offset/limit을 걸면 행이 회원 수만큼 늘어나서
+     * 하이버네이트가 전부 가져온 뒤 메모리에서 페이징합니다. (HHH000104)
+     * 그래서 팀 id 페이지를 먼저 가져오고, 그 id들만 IN 으로 fetch join 합니다.
+     * 페이지 크기와 상관없이 쿼리 수가 고정되고, 행 수도 페이지에 속한 회원 수로 제한됩니다.
+     * 정렬은 team.id 오름차순 고정입니다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Team> findTeamsWithMembers(Pageable pageable) {
+        List<Long> ids = queryFactory
+                .select(team.id)
+                .from(team)
+                .orderBy(team.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        List<Team> content = ids.isEmpty() ? Collections.emptyList() : queryFactory
+                .selectFrom(team).distinct()
+                .leftJoin(team.members, member).fetchJoin()
+                .where(team.id.in(ids))
+                .orderBy(team.id.asc())
+                .setHint(QueryHints.PASS_DISTINCT_THROUGH, false) //중복 제거는 엔티티 기준으로만, SQL에는 distinct를 붙이지 않음
+                .fetch();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> queryFactory.select(team.id.count()).from(team).fetchOne());
+    }
+}
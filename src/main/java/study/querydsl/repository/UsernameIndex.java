@@ -0,0 +1,242 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원명 PREFIX/CONTAINS 검색용 메모리 인덱스
+ * like '%x%'는 회원 테이블을 전부 읽어야 해서, 여기서 조건에 맞는 회원 id를 먼저 골라 쿼리에 id in (...)으로 넘깁니다.
+ * - PREFIX: 회원명 정렬 맵(skip list)의 범위 조회
+ * - CONTAINS: 3글자(trigram) -> 회원 id 목록 중 가장 짧은 목록만 훑으면서 회원명을 직접 확인
+ *
+ * 시작할 때(ApplicationReadyEvent) DB에서 다시 만들고, 이후에는 UsernameIndexUpdater가 커밋된 변경만 반영합니다.
+ * 벌크 쿼리는 이벤트가 없어서 지워진 회원 id가 남을 수 있지만, 쿼리에서 like로 한번 더 거르기 때문에 결과에는 영향이 없습니다.
+ * 후보가 max-candidates보다 많거나, 2글자 이하 CONTAINS거나, 아직 만들어지기 전이면 Optional.empty() - like로만 찾습니다.
+ *
+ * 메트릭: member.search.username-index{result=indexed|fallback}, member.search.username-index.size
+ */
+@Slf4j
+@Component
+public class UsernameIndex {
+    private static final int GRAM = 3;
+
+    private final JPAQueryFactory queryFactory;
+    private final PendingRebuild<Segment> pendingRebuild;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int fetchSize;
+
+    private volatile Segment current; //null이면 아직 만들어지기 전
+
+    public UsernameIndex(EntityManager em, PlatformTransactionManager transactionManager, MeterRegistry registry,
+                         @Value("${member.search.username-index.enabled:true}") boolean enabled,
+                         @Value("${member.search.username-index.max-candidates:1000}") int maxCandidates,
+                         @Value("${member.stream.fetch-size:500}") int fetchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.pendingRebuild = new PendingRebuild<>(this, transactionManager);
+        this.registry = registry;
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.fetchSize = fetchSize;
+        registry.gauge("member.search.username-index.size", this, UsernameIndex::size);
+    }
+
+    /**
+     * 회원 전체를 읽어서 새로 만든 뒤 바꿔 끼웁니다.
+     * 읽는 동안 커밋된 변경은 PendingRebuild가 모아뒀다가 바꾸기 전에 다시 적용합니다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Segment fresh;
+        try {
+            fresh = pendingRebuild.rebuild(this::load, segment -> current = segment);
+        } catch (RuntimeException e) {
+            //인덱스 없이도 like로 찾을 수 있으니 시작은 막지 않습니다.
+            log.warn("username index rebuild failed, searching by like only", e);
+            return;
+        }
+        log.info("username index rebuilt: members={}, trigrams={}, elapsed={}ms",
+                fresh.usernames.size(), fresh.trigrams.size(), System.currentTimeMillis() - start);
+    }
+
+    private Segment load() {
+        Segment fresh = new Segment();
+        try (CloseableIterator<Tuple> rows = queryFactory
+                .select(member.id, member.username)
+                .from(member)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                fresh.put(row.get(member.id), row.get(member.username));
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * @param username null이면 회원이 지워진 것
+     */
+    public synchronized void put(Long id, String username) {
+        if (!enabled) {
+            return;
+        }
+        pendingRebuild.record(segment -> segment.put(id, username));
+        if (current != null) {
+            current.put(id, username);
+        }
+    }
+
+    public void remove(Long id) {
+        put(id, null);
+    }
+
+    /**
+     * @return 회원명이 text와 match 방식으로 맞는 회원 id, 인덱스를 쓸 수 없으면 Optional.empty()
+     */
+    public Optional<Set<Long>> candidates(UsernameMatch match, String text) {
+        Segment segment = current;
+        Optional<Set<Long>> candidates = Optional.empty();
+        if (segment != null && match != UsernameMatch.EXACT) {
+            candidates = match == UsernameMatch.PREFIX ? segment.prefix(text, maxCandidates) : segment.contains(text, maxCandidates);
+        }
+        registry.counter("member.search.username-index", "result", candidates.isPresent() ? "indexed" : "fallback").increment();
+        return candidates;
+    }
+
+    /**
+     * Querydsl 조건으로 - PREFIX/CONTAINS면 후보 id로 좁히고 like로 한번 더 확인합니다. 회원명이 없으면 null
+     */
+    public BooleanExpression predicate(MemberSearchCondition condition) {
+        if (!hasText(condition.getUsername())) {
+            return null;
+        }
+        UsernameMatch match = condition.getUsernameMatch();
+        if (match == UsernameMatch.EXACT) {
+            return member.username.eq(condition.getUsername());
+        }
+        BooleanExpression like = member.username.like(match.likePattern(condition.getUsername()), UsernameMatch.LIKE_ESCAPE);
+        return candidates(match, condition.getUsername())
+                .map(ids -> member.id.in(ids).and(like))
+                .orElse(like);
+    }
+
+    public int size() {
+        Segment segment = current;
+        return segment == null ? 0 : segment.usernames.size();
+    }
+
+    /**
+     * current로 공개된 뒤에는 쓰기는 UsernameIndex의 잠금 안에서만, 읽기는 잠금 없이 합니다.
+     */
+    private static final class Segment {
+        private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+        private final ConcurrentNavigableMap<String, Set<Long>> byUsername = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<Long>> trigrams = new ConcurrentHashMap<>();
+
+        void put(Long id, String username) {
+            String old = username == null ? usernames.remove(id) : usernames.put(id, username);
+            if (old != null && old.equals(username)) {
+                return;
+            }
+            if (old != null) {
+                unlink(byUsername, old, id);
+                for (String gram : grams(old)) {
+                    unlink(trigrams, gram, id);
+                }
+            }
+            if (username != null) {
+                byUsername.computeIfAbsent(username, k -> ConcurrentHashMap.newKeySet()).add(id);
+                for (String gram : grams(username)) {
+                    trigrams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id);
+                }
+            }
+        }
+
+        Optional<Set<Long>> prefix(String text, int limit) {
+            Set<Long> ids = new HashSet<>();
+            for (Set<Long> posting : byUsername.subMap(text, true, text + Character.MAX_VALUE, false).values()) {
+                ids.addAll(posting);
+                if (ids.size() > limit) {
+                    return Optional.empty();
+                }
+            }
+            return Optional.of(ids);
+        }
+
+        Optional<Set<Long>> contains(String text, int limit) {
+            if (text.length() < GRAM) {
+                return Optional.empty();
+            }
+            Set<Long> shortest = null;
+            for (String gram : grams(text)) {
+                Set<Long> posting = trigrams.get(gram);
+                if (posting == null) {
+                    return Optional.of(Collections.emptySet()); //없는 3글자가 하나라도 있으면 결과 없음
+                }
+                if (shortest == null || posting.size() < shortest.size()) {
+                    shortest = posting;
+                }
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Long id : shortest) {
+                String username = usernames.get(id);
+                if (username != null && username.contains(text)) {
+                    ids.add(id);
+                    if (ids.size() > limit) {
+                        return Optional.empty();
+                    }
+                }
+            }
+            return Optional.of(ids);
+        }
+
+        private static Set<String> grams(String username) {
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= username.length(); i++) {
+                grams.add(username.substring(i, i + GRAM));
+            }
+            return grams;
+        }
+
+        private static void unlink(Map<String, Set<Long>> postings, String key, Long id) {
+            Set<Long> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(key, posting);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.repository;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 회원이 커밋된 뒤에 UsernameIndex에 반영하는 하이버네이트 이벤트 리스너
+ * 롤백된 이름이 인덱스에 들어가지 않도록 커밋 후(POST_COMMIT_*)에만 반영합니다.
+ */
+@Component
+public class UsernameIndexUpdater extends PostCommitEntityListener {
+    private final UsernameIndex usernameIndex;
+
+    public UsernameIndexUpdater(EntityManagerFactory emf, UsernameIndex usernameIndex) {
+        super(emf, Member.class);
+        this.usernameIndex = usernameIndex;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            usernameIndex.put((Long) event.getId(), ((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            usernameIndex.put((Long) event.getId(), ((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            usernameIndex.remove((Long) event.getId());
+        }
+    }
+}
@@ -22,6 +22,7 @@ import study.querydsl.dto.UserDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.projection.FastProjections;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -29,6 +30,7 @@ import javax.persistence.PersistenceUnit;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
@@ -696,6 +698,45 @@ public class QuerydslBasicTest {
         }
     }
 
+    /**
+     * FastProjections - Projections.bean/fields와 같은 방식인데 행마다 리플렉션을 하지 않음
+     */
+    @Test
+    @DisplayName("리플렉션 없는 Setter/Field 방식")
+    public void findDtoByFastProjections() {
+        List<MemberDto> bySetter = queryFactory
+                .select(FastProjections.bean(MemberDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+        List<MemberDto> byField = queryFactory
+                .select(FastProjections.fields(MemberDto.class,
+                        member.username,
+                        ExpressionUtils.as(member.age.add(1), "age")))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+
+        //QBean과 결과가 같아야 함
+        assertThat(bySetter).isNotEmpty().containsExactlyElementsOf(queryFactory
+                .select(Projections.bean(MemberDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch());
+        assertThat(byField).isNotEmpty().containsExactlyElementsOf(queryFactory
+                .select(Projections.fields(MemberDto.class,
+                        member.username,
+                        ExpressionUtils.as(member.age.add(1), "age")))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch());
+        assertThat(byField).extracting("username", "age").contains(tuple("member1", 11));
+    }
+
     /**
      * 동적쿼리 BooleanBuilder
      */
@@ -0,0 +1,61 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgeDistributionTest {
+    static final int SAMPLES = 10_000;
+
+    @Test
+    @DisplayName("SEQUENTIAL은 0 ~ 99를 순서대로 반복한다")
+    public void sequentialTest() {
+        Random random = new Random(42L);
+
+        assertThat(AgeDistribution.SEQUENTIAL.next(0, random)).isEqualTo(0);
+        assertThat(AgeDistribution.SEQUENTIAL.next(99, random)).isEqualTo(99);
+        assertThat(AgeDistribution.SEQUENTIAL.next(100, random)).isEqualTo(0);
+        assertThat(AgeDistribution.SEQUENTIAL.next(10_000_123L, random)).isEqualTo(23);
+    }
+
+    @Test
+    @DisplayName("UNIFORM은 0 ~ 99 전체에 고르게 퍼진다")
+    public void uniformTest() {
+        int[] counts = histogram(AgeDistribution.UNIFORM);
+
+        for (int age = 0; age <= 99; age++) {
+            assertThat(counts[age]).as("age %d", age).isBetween(50, 150); //기대값 100
+        }
+    }
+
+    @Test
+    @DisplayName("NORMAL은 40 근처에 몰리고 0 ~ 99 밖으로 나가지 않는다")
+    public void normalTest() {
+        int[] counts = histogram(AgeDistribution.NORMAL);
+
+        long sum = 0;
+        int within15 = 0;
+        for (int age = 0; age <= 99; age++) {
+            sum += (long) age * counts[age];
+            if (age >= 25 && age <= 55) {
+                within15 += counts[age];
+            }
+        }
+        assertThat(sum / (double) SAMPLES).isBetween(39.0, 41.0);
+        assertThat(within15 / (double) SAMPLES).isBetween(0.65, 0.72); //평균 ± 1 표준편차 ≒ 68%
+    }
+
+    private static int[] histogram(AgeDistribution distribution) {
+        Random random = new Random(42L);
+        int[] counts = new int[100];
+        for (int i = 0; i < SAMPLES; i++) {
+            int age = distribution.next(i, random);
+            assertThat(age).isBetween(0, 99);
+            counts[age]++;
+        }
+        return counts;
+    }
+}
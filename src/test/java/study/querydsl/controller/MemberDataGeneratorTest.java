@@ -0,0 +1,98 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트 트랜잭션 안에서는 생성기의 트랜잭션이 참여만 하고 끝나면 롤백되니,
+ * chunk는 트랜잭션을 시작한 횟수(getTransaction)로 셉니다.
+ */
+@SpringBootTest
+@Transactional
+class MemberDataGeneratorTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("chunkSize마다 트랜잭션을 나누고, 요청한 수만큼 팀에 돌아가며 넣는다")
+    public void generateTest() {
+        Long maxTeamId = em.createQuery("select coalesce(max(t.id), 0) from Team t", Long.class).getSingleResult();
+        Long maxMemberId = em.createQuery("select coalesce(max(m.id), 0) from Member m", Long.class).getSingleResult();
+        CountingTransactionManager counting = new CountingTransactionManager(transactionManager);
+        MemberDataGenerator generator = new MemberDataGenerator(counting, 3, 2);
+        generator.em = em;
+
+        double rowsPerSecond = generator.generate(7, 2, AgeDistribution.SEQUENTIAL);
+
+        assertThat(rowsPerSecond).isPositive();
+        assertThat(counting.transactions).isEqualTo(1 + 3); //팀 1번 + 회원 3, 3, 1건
+        List<String> teams = em.createQuery("select t.name from Team t where t.id > :id order by t.id", String.class)
+                .setParameter("id", maxTeamId)
+                .getResultList();
+        assertThat(teams).containsExactly("teamA", "teamB");
+        List<Member> members = em.createQuery("select m from Member m join fetch m.team where m.id > :id order by m.id", Member.class)
+                .setParameter("id", maxMemberId)
+                .getResultList();
+        assertThat(members).extracting("username")
+                .containsExactly("member0", "member1", "member2", "member3", "member4", "member5", "member6");
+        assertThat(members).extracting("age").containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(members).extracting("team.name")
+                .containsExactly("teamA", "teamB", "teamA", "teamB", "teamA", "teamB", "teamA");
+    }
+
+    @Test
+    @DisplayName("팀이 없으면 팀 없이 회원만 넣는다")
+    public void noTeamTest() {
+        Long maxMemberId = em.createQuery("select coalesce(max(m.id), 0) from Member m", Long.class).getSingleResult();
+        MemberDataGenerator generator = new MemberDataGenerator(transactionManager, 10, 2);
+        generator.em = em;
+
+        generator.generate(3, 0, AgeDistribution.NORMAL);
+
+        List<Member> members = em.createQuery("select m from Member m where m.id > :id", Member.class)
+                .setParameter("id", maxMemberId)
+                .getResultList();
+        assertThat(members).hasSize(3);
+        assertThat(members).extracting("team").containsOnlyNulls();
+    }
+
+    static class CountingTransactionManager implements PlatformTransactionManager {
+        private final PlatformTransactionManager delegate;
+        int transactions;
+
+        CountingTransactionManager(PlatformTransactionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            transactions++;
+            return delegate.getTransaction(definition);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            delegate.commit(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            delegate.rollback(status);
+        }
+    }
+}
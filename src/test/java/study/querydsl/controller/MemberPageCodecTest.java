@@ -0,0 +1,56 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.PageResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberPageCodecTest {
+
+    @Test
+    @DisplayName("바이너리로 쓴 페이지를 다시 읽으면 같은 내용이다 (null 팀 포함)")
+    public void roundTrip() throws IOException {
+        Page<MemberTeamDto> page = new PageImpl<>(Arrays.asList(
+                new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+                new MemberTeamDto(2L, "member2", 20, 1L, "teamA"),
+                new MemberTeamDto(3L, "member3", 30, null, null),
+                new MemberTeamDto(4L, null, 40, 2L, "teamB")),
+                PageRequest.of(1, 4), 100);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberPageCodec.write(new PageResponse<>(page), out);
+        PageResponse<MemberTeamDto> read = MemberPageCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(read.getContent()).containsExactlyElementsOf(page.getContent());
+        assertThat(read.getPage()).isEqualTo(1);
+        assertThat(read.getSize()).isEqualTo(4);
+        assertThat(read.getTotalElements()).isEqualTo(100);
+        assertThat(read.getTotalPages()).isEqualTo(25);
+    }
+
+    @Test
+    @DisplayName("Page<MemberTeamDto>를 application/x-member-page로 요청할 때만 쓴다")
+    public void converterTypes() {
+        MemberPageHttpMessageConverter converter = new MemberPageHttpMessageConverter();
+        ResolvableType memberPage = ResolvableType.forClassWithGenerics(Page.class, MemberTeamDto.class);
+        ResolvableType otherPage = ResolvableType.forClassWithGenerics(Page.class, MemberDto.class);
+
+        assertThat(converter.canWrite(memberPage.getType(), PageImpl.class, MemberPageCodec.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(memberPage.getType(), PageImpl.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(otherPage.getType(), PageImpl.class, MemberPageCodec.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(PageImpl.class, MemberPageCodec.MEDIA_TYPE)).isFalse();
+    }
+}
@@ -0,0 +1,48 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import study.querydsl.monitoring.SlowQuery;
+import study.querydsl.monitoring.SlowQueryLog;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SlowQueryControllerTest {
+    SlowQueryLog slowQueryLog;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        slowQueryLog = new SlowQueryLog(10);
+        mockMvc = MockMvcBuilders.standaloneSetup(new SlowQueryController(slowQueryLog)).build();
+    }
+
+    @Test
+    @DisplayName("최근 느린 쿼리부터 내려주고 DELETE로 비운다")
+    public void slowQueriesTest() throws Exception {
+        slowQueryLog.add(new SlowQuery(LocalDateTime.now(), 120, "select 1", "MemberJpaRepository.search:116"));
+        slowQueryLog.add(new SlowQuery(LocalDateTime.now(), 300, "select 2", "MemberRepositoryImpl.searchPageComplex:127"));
+
+        mockMvc.perform(get("/admin/slow-queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].sql").value("select 2"))
+                .andExpect(jsonPath("$[0].elapsedMillis").value(300))
+                .andExpect(jsonPath("$[0].caller").value("MemberRepositoryImpl.searchPageComplex:127"))
+                .andExpect(jsonPath("$[1].sql").value("select 1"));
+
+        mockMvc.perform(delete("/admin/slow-queries"))
+                .andExpect(status().isOk());
+        assertThat(slowQueryLog.recent()).isEmpty();
+    }
+}
@@ -0,0 +1,184 @@
+package study.querydsl.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TeamIdResolver;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인메모리 H2 세 개(primary, replica1, replica2)로 라우팅만 확인합니다.
+ * 복제본에는 스키마가 없으니 어느 DB로 갔는지는 DATABASE()로 봅니다. (지연 테스트만 팀 테이블을 만듦)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + DataSourceRoutingTest.PRIMARY_URL,
+        "datasource.routing.enabled=true",
+        "datasource.routing.lag-query=select lag from replica_lag",
+        "datasource.routing.lag-check-interval-ms=600000",
+        "datasource.routing.replicas[0].name=replica1",
+        "datasource.routing.replicas[0].url=" + DataSourceRoutingTest.REPLICA1_URL,
+        "datasource.routing.replicas[0].username=sa",
+        "datasource.routing.replicas[1].name=replica2",
+        "datasource.routing.replicas[1].url=" + DataSourceRoutingTest.REPLICA2_URL,
+        "datasource.routing.replicas[1].username=sa"
+})
+class DataSourceRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA1_URL = "jdbc:h2:mem:routing_replica1;DB_CLOSE_DELAY=-1";
+    static final String REPLICA2_URL = "jdbc:h2:mem:routing_replica2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DataSourceTargets targets;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamIdResolver teamIdResolver;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() throws SQLException {
+        setLag(REPLICA1_URL, 0);
+        setLag(REPLICA2_URL, 0);
+        targets.checkLag();
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션은 primary, 읽기 전용은 복제본을 번갈아 쓴다")
+    public void routeTest() {
+        assertThat(database(false)).containsIgnoringCase("routing_primary");
+
+        String first = database(true);
+        String second = database(true);
+        assertThat(first).containsIgnoringCase("routing_replica");
+        assertThat(second).containsIgnoringCase("routing_replica").isNotEqualToIgnoringCase(first);
+    }
+
+    @Test
+    @DisplayName("뒤처진 복제본은 빼고, 다 뒤처지면 primary로 간다")
+    public void lagTest() throws SQLException {
+        setLag(REPLICA1_URL, 5000);
+        targets.checkLag();
+        assertThat(database(true)).containsIgnoringCase("routing_replica2");
+        assertThat(database(true)).containsIgnoringCase("routing_replica2");
+
+        setLag(REPLICA2_URL, 5000);
+        targets.checkLag();
+        assertThat(database(true)).containsIgnoringCase("routing_primary");
+
+        assertThat(targets.usage()).containsKeys("primary", "replica1", "replica2");
+        assertThat(targets.usage().get("replica1")).containsEntry("available", false);
+    }
+
+    @Test
+    @DisplayName("EntityManager 하나(OSIV)로 읽기 전용 트랜잭션 뒤에 쓰기 트랜잭션을 열어도 primary로 간다")
+    public void sameEntityManagerTest() {
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em)); //OpenEntityManagerInViewInterceptor와 같음
+        try {
+            assertThat(database(em, true)).containsIgnoringCase("routing_replica");
+            assertThat(database(em, false)).containsIgnoringCase("routing_primary");
+            assertThat(database(em, true)).containsIgnoringCase("routing_replica");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+    }
+
+    @Test
+    @DisplayName("복제본에 아직 없는 팀은 없는 팀으로 기억하지 않고, 검색 결과 캐시는 primary에서 채운다")
+    public void replicaLagTest() throws SQLException {
+        createTeamTable(REPLICA1_URL); //복제본에는 팀 테이블만 있고 방금 커밋한 팀은 아직 없음
+        createTeamTable(REPLICA2_URL);
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        Team team = write.execute(status -> {
+            Team lagTeam = new Team("lagTeam");
+            em.persist(lagTeam);
+            em.persist(new Member("lagMember", 10, lagTeam));
+            return lagTeam;
+        });
+        emf.unwrap(SessionFactory.class).getCache().evictNaturalIdData(Team.class); //팀 이름 -> id를 DB에서 찾게
+        try {
+            assertThat(readOnly(() -> teamIdResolver.resolve("lagTeam"))).isEmpty();
+            assertThat(PrimaryRouting.call(() -> readOnly(() -> teamIdResolver.resolve("lagTeam")))).contains(team.getId());
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("lagTeam");
+            //복제본에는 회원 테이블이 없어서 복제본으로 가면 실패
+            assertThat(memberRepository.search(condition)).extracting("username").containsExactly("lagMember");
+        } finally {
+            write.execute(status -> {
+                em.createQuery("delete from Member m where m.username = 'lagMember'").executeUpdate();
+                em.createQuery("delete from Team t where t.name = 'lagTeam'").executeUpdate();
+                return null;
+            });
+        }
+    }
+
+    private <T> T readOnly(Supplier<T> work) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> work.get());
+    }
+
+    private String database(EntityManager em, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> (String) em.createNativeQuery("select database()").getSingleResult());
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> jdbcTemplate.queryForObject("select database()", String.class));
+    }
+
+    private static void createTeamTable(String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists team(team_id bigint primary key, name varchar(255))");
+        }
+    }
+
+    private static void setLag(String url, long lag) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists replica_lag(lag bigint)");
+            statement.execute("delete from replica_lag");
+            statement.execute("insert into replica_lag values (" + lag + ")");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package study.querydsl.monitoring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchTemplates;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class IndexAdvisorTest {
+    @Autowired
+    IndexAdvisor indexAdvisor;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    ObjectProvider<MemberSearchTemplates> searchTemplates;
+
+    @Autowired
+    ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    @BeforeEach
+    public void before() {
+        indexAdvisor.clear();
+    }
+
+    @Test
+    @DisplayName("검색 메서드를 실행하면 조건 모양별로 실행 횟수가 쌓이고, 정렬은 정렬하는 검색에서만 정리해서 기록한다")
+    public void recordTest() {
+        MemberSearchCondition teamA = condition(null, null, "teamA", null, null);
+        memberRepository.searchPageComplex(teamA, PageRequest.of(0, 10));
+        memberRepository.searchPageComplex(teamA, PageRequest.of(1, 10, Sort.by(Sort.Order.asc("id"))));
+        memberRepository.searchPageComplex(condition(null, null, null, null, null), PageRequest.of(0, 10, Sort.by("age", "age")));
+        memberRepository.searchPageSimple(teamA, PageRequest.of(0, 10, Sort.by("age")));
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(teamA, PageRequest.of(0, 10, Sort.by("team.id"))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        List<IndexAdvice> advice = indexAdvisor.advise();
+
+        assertThat(advice).extracting("pattern").containsExactlyInAnyOrder(
+                "teamName order by id asc (id만 먼저)", "none order by age asc, id asc (id만 먼저)", "teamName");
+        assertThat(advice.get(0).getPattern()).isEqualTo("teamName order by id asc (id만 먼저)");
+        assertThat(advice.get(0).getExecutions()).isEqualTo(2L);
+        //템플릿 JPQL을 하이버네이트가 바꾼 SQL - 팀 조건은 member.team_id, 값은 예시
+        assertThat(advice.get(0).getSql()).startsWith("select member0_.member_id as")
+                .doesNotContain("join").contains("member0_.team_id=1").endsWith("order by member0_.member_id asc limit 10");
+        IndexAdvice unsorted = advice.stream().filter(a -> a.getPattern().equals("teamName")).findFirst().get();
+        assertThat(unsorted.getSql()).contains("left outer join team").doesNotContain("order by");
+    }
+
+    @Test
+    @DisplayName("인덱스로 찾는 조건은 full scan이 아니고, 조건이 없거나 '%x%'면 full scan이다")
+    public void fullScanTest() {
+        IndexAdvisor likeOnly = new IndexAdvisor(dataSource, searchTemplates, entityManagerFactory, false, 200); //member.search.username-index.enabled=false
+        for (IndexAdvisor advisor : new IndexAdvisor[]{indexAdvisor, likeOnly}) {
+            advisor.record(condition("member1", UsernameMatch.EXACT, null, null, null), PageRequest.of(0, 10), false);
+            advisor.record(condition("member1", UsernameMatch.PREFIX, null, null, null), PageRequest.of(0, 10), false);
+            advisor.record(condition(null, null, "teamA", 20, null), PageRequest.of(0, 10), false);
+            advisor.record(condition(null, null, null, null, null), PageRequest.of(0, 10), false);
+        }
+        likeOnly.record(condition("ember", UsernameMatch.CONTAINS, null, null, null), PageRequest.of(0, 10), false);
+
+        //인덱스가 켜져있으면 후보 id를 PK로 찾음
+        indexAdvisor.record(condition("ember", UsernameMatch.CONTAINS, null, null, null), PageRequest.of(0, 10), false);
+        IndexAdvice candidates = indexAdvisor.advise().stream()
+                .filter(advice -> advice.getPattern().equals("username(CONTAINS)"))
+                .findFirst().get();
+        assertThat(candidates.getSql()).contains("member0_.member_id in (1, 2, 3)").contains("like '%member1%' escape '!'");
+        assertThat(candidates.isFullScan()).as(candidates.getPlan()).isFalse();
+
+        for (IndexAdvice advice : likeOnly.advise()) {
+            System.out.println(advice.getPattern() + " -> " + advice.getPlan());
+            switch (advice.getPattern()) {
+                case "username":
+                case "username(PREFIX)":
+                case "teamName+ageGoe":
+                    assertThat(advice.isFullScan()).as(advice.getPlan()).isFalse();
+                    assertThat(advice.getSuggestion()).isNull();
+                    break;
+                case "none":
+                    assertThat(advice.isFullScan()).isTrue();
+                    assertThat(advice.getSuggestion()).doesNotStartWith("create index");
+                    break;
+                case "username(CONTAINS)":
+                    assertThat(advice.isFullScan()).isTrue();
+                    assertThat(advice.getSuggestion()).contains("member.search.username-index");
+                    break;
+                default:
+                    throw new AssertionError(advice.getPattern());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("커서 검색은 (age, id) 순서와 커서 다음 조건까지 넣은 SQL로 본다")
+    public void cursorTest() {
+        MemberSearchCondition teamA = condition(null, null, "teamA", null, null);
+        memberRepository.searchByCursor(teamA, null, 2);
+        memberRepository.searchByCursor(teamA, new MemberCursor(20, 1L), 2);
+
+        List<IndexAdvice> advice = indexAdvisor.advise();
+
+        assertThat(advice).extracting("pattern").containsExactlyInAnyOrder(
+                "teamName order by age asc, id asc (커서)", "teamName order by age asc, id asc (커서 다음)");
+        for (IndexAdvice cursor : advice) {
+            assertThat(cursor.getSql()).contains("member0_.team_id=1")
+                    .endsWith("order by member0_.age asc, member0_.member_id asc limit 10");
+        }
+        IndexAdvice after = advice.stream().filter(a -> a.getPattern().endsWith("(커서 다음)")).findFirst().get();
+        assertThat(after.getSql()).contains("member0_.age>20").contains("member0_.member_id>1");
+        assertThat(IndexAdvisor.SearchPattern.ofCursor(teamA, true, true).suggestIndex())
+                .isEqualTo("create index idx_member_team_id_age on member (team_id, age)");
+    }
+
+    @Test
+    @DisplayName("같은 값 조건 -> 범위 조건 -> 정렬 순서로 복합 인덱스를 제안한다")
+    public void suggestIndexTest() {
+        assertThat(suggest(condition(null, null, "teamA", 20, 40), PageRequest.of(0, 10)))
+                .isEqualTo("create index idx_member_team_id_age on member (team_id, age)");
+        assertThat(suggest(condition("member", UsernameMatch.PREFIX, "teamA", null, null), PageRequest.of(0, 10)))
+                .isEqualTo("create index idx_member_team_id_username on member (team_id, username)");
+        assertThat(suggest(condition("member1", UsernameMatch.EXACT, null, 20, null), PageRequest.of(0, 10, Sort.by("age"))))
+                .isEqualTo("create index idx_member_username_age on member (username, age)");
+        //범위 조건이 없으면 정렬 컬럼까지, 팀 이름 정렬에서 멈춤
+        assertThat(suggest(condition(null, null, "teamA", null, null), PageRequest.of(0, 10, Sort.by("age", "team.name", "username"))))
+                .isEqualTo("create index idx_member_team_id_age on member (team_id, age)");
+    }
+
+    @Test
+    @DisplayName("모양 개수가 max-patterns를 넘으면 새 모양은 버린다")
+    public void maxPatternsTest() {
+        IndexAdvisor small = new IndexAdvisor(dataSource, searchTemplates, entityManagerFactory, true, 1);
+        small.record(condition(null, null, "teamA", null, null), PageRequest.of(0, 10, Sort.by("nope")), true); //정렬할 수 없으면 기록 안 함
+        small.record(condition(null, null, "teamA", null, null), Pageable.unpaged(), false);
+        small.record(condition(null, null, null, 20, null), Pageable.unpaged(), false);
+        small.record(condition(null, null, "teamB", null, null), Pageable.unpaged(), false); //같은 모양은 계속 셈
+
+        List<IndexAdvice> advice = small.advise();
+
+        assertThat(advice).extracting("pattern").containsExactly("teamName");
+        assertThat(advice).extracting("executions").containsExactly(2L);
+    }
+
+    private static String suggest(MemberSearchCondition condition, Pageable pageable) {
+        return IndexAdvisor.SearchPattern.of(condition, pageable, true, true).suggestIndex();
+    }
+
+    private static MemberSearchCondition condition(String username, UsernameMatch match, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,157 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.StreamedPage;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepositoryImpl;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 포인트컷 대상이 레파지토리 빈이라 조인포인트를 직접 만들어서 부릅니다.
+ */
+class SearchMetricsAspectTest {
+    SimpleMeterRegistry registry;
+    IndexAdvisor indexAdvisor;
+    SearchMetricsAspect aspect;
+
+    @BeforeEach
+    public void before() {
+        registry = new SimpleMeterRegistry();
+        indexAdvisor = new IndexAdvisor(null, null, null, true, 10); //record만 쓰니 DataSource, 템플릿은 필요없음
+        aspect = new SearchMetricsAspect(registry, indexAdvisor);
+    }
+
+    @AfterEach
+    public void after() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("조건 모양, 페이지 깊이, 엔드포인트, 결과로 태그를 붙이고 돌려준 회원 수를 남긴다")
+    public void tagsTest() throws Throwable {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/v3/members");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        MemberSearchCondition condition = condition("teamA", 20);
+        PageRequest pageable = PageRequest.of(3, 2);
+        PageImpl<MemberTeamDto> page = new PageImpl<>(Arrays.asList(
+                new MemberTeamDto(1L, "member1", 20, 1L, "teamA"),
+                new MemberTeamDto(2L, "member2", 30, 1L, "teamA")), pageable, 10);
+
+        Object result = aspect.record(joinPoint(MemberRepositoryImpl.class, "searchPageComplex", page, condition, pageable));
+
+        assertThat(result).isSameAs(page);
+        Timer timer = registry.find("member.search")
+                .tag("method", "MemberRepositoryImpl.searchPageComplex")
+                .tag("shape", "teamName+ageGoe")
+                .tag("pageDepth", "1-9")
+                .tag("endpoint", "/v3/members")
+                .tag("outcome", "success")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        DistributionSummary rows = registry.find("member.search.rows")
+                .tag("shape", "teamName+ageGoe")
+                .tag("endpoint", "/v3/members")
+                .summary();
+        assertThat(rows).isNotNull();
+        assertThat(rows.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("실패하면 outcome=error로 시간만 남기고, 요청 밖이면 endpoint=none")
+    public void errorTest() {
+        ProceedingJoinPoint joinPoint = joinPoint(MemberJpaRepository.class, "search", null, new MemberSearchCondition());
+        try {
+            when(joinPoint.proceed()).thenThrow(new IllegalStateException("db down"));
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+
+        assertThatThrownBy(() -> aspect.record(joinPoint)).isInstanceOf(IllegalStateException.class);
+
+        Timer timer = registry.find("member.search")
+                .tag("method", "MemberJpaRepository.search")
+                .tag("shape", "none")
+                .tag("pageDepth", "unpaged")
+                .tag("endpoint", "none")
+                .tag("outcome", "error")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(registry.find("member.search.rows").summary()).isNull();
+    }
+
+    @Test
+    @DisplayName("페이지 번호는 구간으로 묶고, 결과 타입마다 회원 수를 센다")
+    public void pageDepthAndRowsTest() throws Throwable {
+        MemberSearchCondition condition = condition(null, 20);
+
+        aspect.record(joinPoint(MemberRepositoryImpl.class, "searchPageStream", new StreamedPage(0, 10, 7, 7),
+                condition, PageRequest.of(0, 10)));
+        aspect.record(joinPoint(MemberRepositoryImpl.class, "searchSlice", Collections.nCopies(3, null),
+                condition, PageRequest.of(42, 10)));
+        aspect.record(joinPoint(MemberJpaRepository.class, "searchStream", 5L, condition, Pageable.unpaged()));
+        aspect.record(joinPoint(MemberRepositoryImpl.class, "searchPageComplex", null, condition, PageRequest.of(100, 10)));
+
+        assertThat(rows("MemberRepositoryImpl.searchPageStream", "0")).isEqualTo(7);
+        assertThat(rows("MemberRepositoryImpl.searchSlice", "10-99")).isEqualTo(3);
+        assertThat(rows("MemberJpaRepository.searchStream", "unpaged")).isEqualTo(5);
+        assertThat(rows("MemberRepositoryImpl.searchPageComplex", "100+")).isZero();
+    }
+
+    private double rows(String method, String pageDepth) {
+        DistributionSummary summary = registry.find("member.search.rows")
+                .tag("method", method)
+                .tag("shape", "ageGoe")
+                .tag("pageDepth", pageDepth)
+                .summary();
+        assertThat(summary).as(method).isNotNull();
+        return summary.totalAmount();
+    }
+
+    private static ProceedingJoinPoint joinPoint(Class<?> type, String method, Object result, Object... args) {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class, RETURNS_DEEP_STUBS);
+        when(joinPoint.getSignature().getDeclaringType()).thenReturn(type);
+        when(joinPoint.getSignature().getName()).thenReturn(method);
+        when(joinPoint.getArgs()).thenReturn(args);
+        try {
+            when(joinPoint.proceed()).thenReturn(result);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        return joinPoint;
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 기준 시간을 0으로 두면 애플리케이션 쿼리가 모두 느린 쿼리로 남습니다.
+ */
+@SpringBootTest(properties = "monitoring.slow-query.threshold-ms=0")
+@Transactional
+class SlowQueryListenerTest {
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ObjectProvider<DataSource> dataSource;
+
+    @BeforeEach
+    public void before() {
+        slowQueryLog.clear();
+    }
+
+    @Test
+    @DisplayName("파라미터가 바인딩된 SQL과 호출한 레파지토리 메서드를 남긴다")
+    public void boundSqlTest() {
+        em.persist(new Member("slowMember", 10));
+        em.flush();
+        slowQueryLog.clear();
+
+        memberJpaRepository.findByUsername("slowMember");
+
+        SlowQuery query = slowQueryLog.recent().stream()
+                .filter(q -> q.getSql().contains("'slowMember'"))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertThat(query.getSql()).doesNotContain("?");
+        assertThat(query.getCaller()).startsWith("MemberJpaRepository.findByUsername:");
+    }
+
+    @Test
+    @DisplayName("기준 시간보다 빠른 쿼리는 남기지 않는다")
+    public void thresholdTest() {
+        SlowQueryLog log = new SlowQueryLog(10);
+        SlowQueryListener listener = new SlowQueryListener(log, dataSource, 50, false);
+        try {
+            listener.onAfterAnyExecute(statement("select 1"), TimeUnit.MILLISECONDS.toNanos(49), null);
+            listener.onAfterAnyExecute(statement("select 2"), TimeUnit.MILLISECONDS.toNanos(50), null);
+        } finally {
+            listener.shutdown();
+        }
+
+        assertThat(log.recent()).extracting("sql").containsExactly("select 2");
+        assertThat(log.recent()).extracting("elapsedMillis").containsExactly(50L);
+        assertThat(log.recent()).extracting("caller").containsExactly("unknown"); //레파지토리 밖에서 실행
+    }
+
+    @Test
+    @DisplayName("실행계획은 SELECT만 별도 스레드에서 나중에 채운다")
+    public void planTest() throws InterruptedException {
+        SlowQueryLog log = new SlowQueryLog(10);
+        SlowQueryListener listener = new SlowQueryListener(log, dataSource, 50, true);
+        SlowQuery select;
+        SlowQuery update;
+        try {
+            listener.onAfterAnyExecute(statement("update member set age = age where 1 = 0"), TimeUnit.MILLISECONDS.toNanos(60), null);
+            listener.onAfterAnyExecute(statement("select * from member"), TimeUnit.MILLISECONDS.toNanos(60), null);
+
+            select = log.recent().get(0);
+            update = log.recent().get(1);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (select.getPlan() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            listener.shutdown();
+        }
+        //실행계획 스레드는 하나라 select 계획이 채워졌으면 앞의 update도 처리가 끝난 것
+        assertThat(select.getPlan()).isNotNull().doesNotStartWith("EXPLAIN 실패").containsIgnoringCase("member");
+        assertThat(update.getPlan()).isNull();
+    }
+
+    private static StatementInformation statement(String sql) {
+        StatementInformation statement = new StatementInformation(ConnectionInformation.fromTestConnection(null));
+        statement.setStatementQuery(sql);
+        return statement;
+    }
+}
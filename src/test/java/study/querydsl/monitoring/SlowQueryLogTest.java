@@ -0,0 +1,25 @@
+package study.querydsl.monitoring;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryLogTest {
+
+    @Test
+    @DisplayName("가득 차면 가장 오래된 것부터 버리고, 최근 것부터 돌려준다")
+    public void ringBufferTest() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(3);
+        for (int i = 1; i <= 5; i++) {
+            slowQueryLog.add(new SlowQuery(LocalDateTime.now(), i, "select " + i, "unknown"));
+        }
+
+        assertThat(slowQueryLog.recent()).extracting("sql").containsExactly("select 5", "select 4", "select 3");
+
+        slowQueryLog.clear();
+        assertThat(slowQueryLog.recent()).isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 포인트컷이 monitoring 패키지를 빼기 때문에 조인포인트를 직접 만들어서 부릅니다.
+ */
+class SqlBudgetAspectTest {
+
+    @Test
+    @DisplayName("@Transactional 메서드 안에서 같은 SQL이 반복되면 N+1로 실패시킨다")
+    public void repeatTest() throws Throwable {
+        SqlBudgetProperties properties = new SqlBudgetProperties();
+        properties.setRepeatThreshold(3);
+        properties.setFailOnViolation(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlBudgetAspect aspect = new SqlBudgetAspect(new SqlBudgetGuard(properties, registry));
+
+        assertThat(aspect.check(load(2))).isEqualTo("loaded");
+        assertThatThrownBy(() -> aspect.check(load(3)))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("MemberService.load(..)");
+        assertThat(registry.counter("sql.repeated.statement", "scope", "MemberService.load(..)").count()).isEqualTo(1);
+
+        properties.setFailOnViolation(false);
+        assertThat(aspect.check(load(3))).isEqualTo("loaded");
+        assertThat(registry.counter("sql.repeated.statement", "scope", "MemberService.load(..)").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 advisor보다 바깥에서 돌아서 커밋이 끝난 뒤 검사한다")
+    public void orderTest() {
+        Order order = AnnotationUtils.findAnnotation(SqlBudgetAspect.class, Order.class);
+
+        //@EnableTransactionManagement 기본 order가 LOWEST_PRECEDENCE, 값이 작을수록 바깥
+        assertThat(order).isNotNull();
+        assertThat(order.value()).isLessThan(Ordered.LOWEST_PRECEDENCE);
+    }
+
+    /**
+     * 회원 목록을 읽고 팀을 회원마다 따로 읽는 N+1 흉내
+     */
+    private static ProceedingJoinPoint load(int members) throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class, RETURNS_DEEP_STUBS);
+        when(joinPoint.getSignature().toShortString()).thenReturn("MemberService.load(..)");
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            StatementScope.record("select * from member");
+            for (int i = 0; i < members; i++) {
+                StatementScope.record("select * from team where team_id = ?");
+            }
+            return "loaded";
+        });
+        return joinPoint;
+    }
+}
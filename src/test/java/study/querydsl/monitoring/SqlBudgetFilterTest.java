@@ -0,0 +1,118 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 테스트 application.yml에는 엔드포인트 예산이 없어서 여기서 직접 줍니다. (fail-on-violation: true)
+ * 스트리밍 응답은 다른 스레드에서 커밋된 데이터를 읽으니 @Transactional 없이 넣고 끝나면 지웁니다.
+ */
+@SpringBootTest(properties = {
+        "sql.budget.endpoints.[/v1/members]=0",
+        "sql.budget.endpoints.[/v1/members/stream]=0",
+        "sql.budget.endpoints.[/v3/members/stream]=10",
+        "member.search.cache.enabled=false"})
+@AutoConfigureMockMvc
+class SqlBudgetFilterTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team team = new Team("budgetTeam");
+            em.persist(team);
+            em.persist(new Member("budget1", 10, team));
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.username like 'budget%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'budget%'").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("예산을 넘긴 요청은 응답을 내보내기 전에 실패시킨다")
+    public void budgetTest() {
+        double exceeded = exceeded("GET /v1/members");
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/v1/members").param("teamName", "budgetTeam")))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("(예산 0개)");
+        assertThat(exceeded("GET /v1/members")).isEqualTo(exceeded + 1);
+    }
+
+    @Test
+    @DisplayName("스트리밍 응답을 쓰는 스레드의 SQL도 세고, ASYNC 디스패치에서 검사한다")
+    public void streamTest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members/stream").param("teamName", "budgetTeam"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        //검사 전이라 아직 본문이 나가지 않음
+        assertThat(result.getResponse().getContentAsString()).isEmpty();
+        assertThatThrownBy(() -> mockMvc.perform(asyncDispatch(result)))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("GET /v1/members/stream")
+                .hasMessageContaining("(예산 0개)");
+    }
+
+    @Test
+    @DisplayName("예산 안의 스트리밍 응답은 검사가 끝나면 본문을 그대로 내보낸다")
+    public void streamWithinBudgetTest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v3/members/stream").param("teamName", "budgetTeam"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("budget1")));
+        assertThat(exceeded("GET /v3/members/stream")).isZero();
+    }
+
+    private double exceeded(String scope) {
+        return registry.counter("sql.budget.exceeded", "scope", scope).count();
+    }
+}
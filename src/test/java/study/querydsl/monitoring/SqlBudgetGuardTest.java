@@ -0,0 +1,82 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlBudgetGuardTest {
+    SqlBudgetProperties properties;
+    SimpleMeterRegistry registry;
+    SqlBudgetGuard guard;
+
+    @BeforeEach
+    public void before() {
+        properties = new SqlBudgetProperties();
+        properties.setRepeatThreshold(3);
+        properties.getEndpoints().put("/v3/members", 2);
+        registry = new SimpleMeterRegistry();
+        guard = new SqlBudgetGuard(properties, registry);
+    }
+
+    @Test
+    @DisplayName("예산을 넘기면 메트릭을 올리고 fail-on-violation이면 실패시킨다")
+    public void budgetTest() {
+        properties.setFailOnViolation(true);
+        StatementScope scope = scope("GET /v3/members", "select 1", "select 2", "select 3");
+
+        assertThat(guard.budgetOf("/v3/members")).isEqualTo(2);
+        assertThatThrownBy(() -> guard.check(scope, 2))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("SQL 3개 실행 (예산 2개)");
+        assertThat(registry.counter("sql.budget.exceeded", "scope", "GET /v3/members").count()).isEqualTo(1);
+
+        guard.check(scope, 3); //예산 안
+        guard.check(scope, null); //예산 없는 범위
+        assertThat(registry.counter("sql.budget.exceeded", "scope", "GET /v3/members").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("같은 SQL이 repeat-threshold번 이상 나오면 N+1로 본다")
+    public void repeatTest() {
+        properties.setFailOnViolation(true);
+        StatementScope under = scope("under", "select team", "select team");
+        StatementScope repeated = scope("repeated", "select team", "select team", "select team");
+
+        guard.check(under, null);
+        assertThatThrownBy(() -> guard.check(repeated, null))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("같은 SQL 3번 반복");
+        assertThat(registry.counter("sql.repeated.statement", "scope", "under").count()).isZero();
+        assertThat(registry.counter("sql.repeated.statement", "scope", "repeated").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("fail-on-violation이 꺼져있거나 record로 부르면 남기기만 하고 실패시키지 않는다")
+    public void recordTest() {
+        StatementScope scope = scope("GET /v3/members", "select 1", "select 1", "select 1");
+
+        guard.check(scope, 1);
+        assertThat(guard.record(scope, 1)).contains("예산 1개").contains("N+1 의심");
+        assertThat(guard.record(scope("ok", "select 1"), 1)).isNull();
+
+        properties.setFailOnViolation(true);
+        assertThat(guard.record(scope, 1)).isNotNull();
+        assertThat(registry.counter("sql.budget.exceeded", "scope", "GET /v3/members").count()).isEqualTo(3);
+    }
+
+    private static StatementScope scope(String name, String... statements) {
+        StatementScope scope = StatementScope.open(name);
+        try {
+            for (String sql : statements) {
+                StatementScope.record(sql);
+            }
+        } finally {
+            scope.close();
+        }
+        return scope;
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkOptions;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 벌크 작업은 청크마다 트랜잭션을 커밋하기 때문에 @Transactional 없이 테스트하고 끝나면 직접 지웁니다.
+ */
+@SpringBootTest
+class MemberBulkTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team bulkA = new Team("bulkA");
+            Team bulkB = new Team("bulkB");
+            em.persist(bulkA);
+            em.persist(bulkB);
+            for (int i = 0; i < 25; i++) {
+                em.persist(new Member("bulk" + i, i, i % 2 == 0 ? bulkA : bulkB));
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.username like 'bulk%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'bulk%'").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("조건에 맞는 회원만 청크로 나눠서 나이를 더한다")
+    public void bulkAddAgeTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkA"); //0, 2, 4 ... 24 -> 13명
+        condition.setAgeGoe(10);        //10, 12 ... 24 -> 8명
+
+        List<BulkResult> progress = new ArrayList<>();
+        BulkResult result = memberRepository.bulkAddAge(condition, 100, BulkOptions.of(3, 0).onProgress(progress::add));
+
+        assertThat(result.getAffectedRows()).isEqualTo(8);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(progress).extracting("affectedRows").containsExactly(3L, 6L, 8L);
+
+        List<Integer> ages = tx.execute(status -> em
+                .createQuery("select m.age from Member m where m.username like 'bulk%' and m.age >= 100 order by m.age", Integer.class)
+                .getResultList());
+        assertThat(ages).containsExactly(110, 112, 114, 116, 118, 120, 122, 124);
+    }
+
+    @Test
+    @DisplayName("청크 크기로 나눠떨어져도 빈 청크에서 멈춘다")
+    public void bulkDeleteTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkB"); //1, 3 ... 23 -> 12명
+
+        BulkResult result = memberRepository.bulkDelete(condition, BulkOptions.of(4, 1));
+
+        assertThat(result.getAffectedRows()).isEqualTo(12);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(memberRepository.search(condition)).isEmpty();
+
+        condition.setTeamName("bulkA");
+        assertThat(memberRepository.search(condition)).hasSize(13);
+    }
+
+    @Test
+    @DisplayName("없는 팀이면 아무것도 바꾸지 않는다")
+    public void bulkUnknownTeam() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("unknown");
+
+        BulkResult result = memberRepository.bulkDelete(condition, BulkOptions.of(10, 0));
+
+        assertThat(result.getAffectedRows()).isZero();
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서는 호출할 수 없다")
+    public void bulkInTransaction() {
+        assertThatThrownBy(() -> tx.execute(status ->
+                memberRepository.bulkDelete(new MemberSearchCondition(), BulkOptions.of(10, 0))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
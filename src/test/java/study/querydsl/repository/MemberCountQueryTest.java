@@ -0,0 +1,93 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberCountQueryTest {
+    /**
+     * 검색 조건 4개(username, teamName, ageGoe, ageLoe)의 16가지 조합별 count 쿼리 확인
+     */
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    @DisplayName("count 쿼리는 조인 없이 count(member.id)로 센다")
+    public void countQueryByCondition() {
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = conditionOf(shape);
+
+            String jpql = searchTemplates.countJpql(MemberSearchShape.of(condition));
+            System.out.println("shape = " + shape + ", condition = " + condition + "\n" + jpql);
+
+            assertThat(jpql).startsWith("select count(member1.id)");
+            assertThat(jpql).doesNotContain("join");
+            assertThat(jpql.contains("member1.team.id")).isEqualTo(condition.getTeamName() != null);
+
+            long count = searchTemplates.bind(condition)
+                    .map(binding -> searchTemplates.fetchCount(em, binding))
+                    .orElse(0L);
+            assertThat(count).isEqualTo(memberRepository.search(condition).size());
+        }
+    }
+
+    @Test
+    @DisplayName("같은 모양의 조건은 같은 JPQL을 재사용하고 값만 바인딩한다")
+    public void contentTemplateByShape() {
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = conditionOf(shape);
+            String jpql = searchTemplates.contentJpql(MemberSearchShape.of(condition));
+
+            assertThat(jpql).doesNotContain("member3", "teamB"); //값은 JPQL에 들어가지 않음
+            assertThat(searchTemplates.contentJpql(MemberSearchShape.of(conditionOf(shape)))).isSameAs(jpql);
+        }
+    }
+
+    private MemberSearchCondition conditionOf(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & 1) != 0) {
+            condition.setUsername("member3");
+        }
+        if ((shape & 2) != 0) {
+            condition.setTeamName("teamB");
+        }
+        if ((shape & 4) != 0) {
+            condition.setAgeGoe(20);
+        }
+        if ((shape & 8) != 0) {
+            condition.setAgeLoe(40);
+        }
+        return condition;
+    }
+}
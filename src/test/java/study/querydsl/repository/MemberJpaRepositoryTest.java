@@ -7,15 +7,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberColumns;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementScope;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 
 @SpringBootTest
@@ -103,4 +107,76 @@ class MemberJpaRepositoryTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("스트리밍 조회는 fetchSize와 상관없이 전부 넘겨준다.")
+    public void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        Member member3 = new Member("member3", 30, teamB);
+        em.persist(member3);
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long count = memberJpaRepository.searchStream(condition, 2, result::add);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member3", "member4", "member5");
+        //부른 쪽 트랜잭션의 엔티티는 그대로 영속 상태
+        assertThat(em.contains(member3)).isTrue();
+        assertThat(em.contains(teamB)).isTrue();
+    }
+
+    @Test
+    @DisplayName("열(column) 조회는 DTO 조회와 같은 값을 배열로 담는다")
+    public void searchColumnsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+        em.flush(); //네이티브 SQL이라 flush 해야 보임
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        MemberColumns columns = memberJpaRepository.searchColumns(condition, 2);
+
+        List<MemberTeamDto> rows = new ArrayList<>();
+        MemberColumns.Cursor cursor = columns.cursor();
+        while (cursor.next()) {
+            rows.add(cursor.toDto());
+        }
+        assertThat(columns.size()).isEqualTo(rows.size());
+        assertThat(rows).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+        assertThat(rows).extracting("username").contains("member2", "member3", "member4", "member5");
+        assertThat(rows).filteredOn("username", "member5").extracting("teamId", "teamName").containsOnly(tuple(null, null));
+
+        condition.setTeamName("teamB");
+        assertThat(memberJpaRepository.searchColumns(condition, 100).teamNameCardinality()).isEqualTo(1);
+
+        //JDBC로 직접 실행한 SQL도 StatementScope에 셈
+        condition.setTeamName(null);
+        StatementScope scope = StatementScope.open("searchColumns");
+        try {
+            memberJpaRepository.searchColumns(condition, 100);
+        } finally {
+            scope.close();
+        }
+        assertThat(scope.getTotal()).isEqualTo(1);
+    }
+
+}
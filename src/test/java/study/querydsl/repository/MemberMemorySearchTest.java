@@ -0,0 +1,174 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkOptions;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 메모리 검색 엔진과 JPA 경로(searchPageComplex)가 같은 페이지를 돌려주는지 조건 조합마다 비교합니다.
+ * 엔진은 커밋된 뒤에 반영되기 때문에 @Transactional 없이 테스트하고, 다른 테스트 데이터가 섞이지 않게 DB를 따로 씁니다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:memory_search;DB_CLOSE_DELAY=-1",
+        "member.search.memory.enabled=true"
+})
+class MemberMemorySearchTest {
+    private static final List<Pageable> PAGES = Arrays.asList(
+            Pageable.unpaged(), PageRequest.of(0, 5), PageRequest.of(1, 5), PageRequest.of(3, 7), PageRequest.of(100, 5),
+            PageRequest.of(1, 5, Sort.by(Sort.Order.desc("age"), Sort.Order.asc("team.name"))),
+            PageRequest.of(0, 7, Sort.by(Sort.Order.desc("team.name"), Sort.Order.desc("username"))),
+            PageRequest.of(2, 5, Sort.by(Sort.Order.asc("team.name").nullsLast(), Sort.Order.desc("id"))),
+            PageRequest.of(0, 40, Sort.by("username")));
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberMemorySearch memorySearch;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team memA = new Team("memA");
+            Team memB = new Team("memB");
+            em.persist(memA);
+            em.persist(memB);
+            em.persist(new Team("memC")); //회원 없는 팀
+            for (int i = 0; i < 40; i++) {
+                Team team = i % 3 == 0 ? memA : i % 3 == 1 ? memB : null;
+                em.persist(new Member(i % 10 == 9 ? "dup" : "mem" + i, i % 7 * 10, team));
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("select m from Member m", Member.class).getResultList().forEach(em::remove);
+            em.createQuery("select t from Team t", Team.class).getResultList().forEach(em::remove);
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("조건 조합과 페이지마다 JPA 경로와 같은 페이지를 돌려준다")
+    public void sameAsJpaTest() {
+        assertThat(memorySearch.isServing()).isTrue();
+        assertSameAsJpa(conditions());
+    }
+
+    @Test
+    @DisplayName("커밋된 추가/변경/삭제가 다음 조회에 반영된다")
+    public void consistencyTest() {
+        MemberSearchCondition memA = condition(null, UsernameMatch.EXACT, "memA", null, null);
+        long before = memorySearch.searchPage(memA, Pageable.unpaged()).getTotalElements();
+
+        tx.execute(status -> {
+            Team memD = new Team("memD");
+            em.persist(memD);
+            Member moved = em.createQuery("select m from Member m where m.username = 'mem0'", Member.class).getSingleResult();
+            moved.setTeam(memD);
+            moved.setUsername("moved");
+            moved.setAge(99);
+            em.remove(em.createQuery("select m from Member m where m.username = 'mem3'", Member.class).getSingleResult());
+            em.persist(new Member("mem100", 30, em.createQuery("select t from Team t where t.name = 'memA'", Team.class).getSingleResult()));
+            return null;
+        });
+
+        assertThat(memorySearch.searchPage(memA, Pageable.unpaged()).getTotalElements()).isEqualTo(before - 2 + 1);
+        assertThat(memorySearch.searchPage(condition("moved", UsernameMatch.EXACT, "memD", 99, 99), Pageable.unpaged()).getContent())
+                .extracting("teamName").containsExactly("memD");
+        //서비스 중이면 searchPageComplex도 엔진에서 답함
+        assertThat(memberRepository.searchPageComplex(memA, PageRequest.of(0, 5)))
+                .isEqualTo(memorySearch.searchPage(memA, PageRequest.of(0, 5)));
+        assertSameAsJpa(conditions());
+    }
+
+    @Test
+    @DisplayName("벌크 작업이 중간에 실패해도 이미 커밋된 청크는 반영된다")
+    public void bulkFailureTest() {
+        MemberSearchCondition memA = condition(null, UsernameMatch.EXACT, "memA", null, null);
+
+        assertThatThrownBy(() -> memberRepository.bulkAddAge(memA, 1000, BulkOptions.of(3, 0).onProgress(progress -> {
+            throw new IllegalStateException("stop after first chunk");
+        }))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(memorySearch.searchPage(condition(null, UsernameMatch.EXACT, "memA", 1000, null), Pageable.unpaged())
+                .getTotalElements()).isEqualTo(3);
+        assertSameAsJpa(conditions());
+    }
+
+    private void assertSameAsJpa(List<MemberSearchCondition> conditions) {
+        for (MemberSearchCondition condition : conditions) {
+            for (Pageable pageable : PAGES) {
+                //쓰기 트랜잭션 안에서는 엔진을 건너뛰고 JPA로 조회
+                Page<MemberTeamDto> jpa = tx.execute(status -> memberRepository.searchPageComplex(condition, pageable));
+                Page<MemberTeamDto> memory = memorySearch.searchPage(condition, pageable);
+
+                assertThat(memory).as("%s %s", condition, pageable).isEqualTo(jpa);
+                assertThat(memory.getTotalElements()).as("%s %s", condition, pageable).isEqualTo(jpa.getTotalElements());
+            }
+        }
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (String username : Arrays.asList(null, "mem4", "dup", "nobody")) {
+            for (String teamName : Arrays.asList(null, "memA", "memB", "memC", "memX")) {
+                for (Integer ageGoe : Arrays.asList(null, 20)) {
+                    for (Integer ageLoe : Arrays.asList(null, 40)) {
+                        conditions.add(condition(username, UsernameMatch.EXACT, teamName, ageGoe, ageLoe));
+                    }
+                }
+            }
+        }
+        conditions.add(condition("mem1", UsernameMatch.PREFIX, null, null, null));
+        conditions.add(condition("mem1", UsernameMatch.PREFIX, "memB", 10, null));
+        conditions.add(condition("em2", UsernameMatch.CONTAINS, null, null, 50));
+        conditions.add(condition("m", UsernameMatch.CONTAINS, "memA", null, null));
+        return conditions;
+    }
+
+    private MemberSearchCondition condition(String username, UsernameMatch match, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
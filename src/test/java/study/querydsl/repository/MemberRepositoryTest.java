@@ -6,17 +6,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.StreamedPage;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementScope;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -30,6 +39,9 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
     @Test
     @DisplayName("쿼리 DSL 레파지토리 사용..")
     public void basicTest() {
@@ -101,6 +113,224 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1","member2","member3");
     }
 
+    @Test
+    @DisplayName("Slice는 size + 1개로 다음 페이지 유무만 판단")
+    public void searchSliceTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 2));
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 2));
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Slice를 끝까지 넘기면 같은 나이가 많아도 모든 회원이 한 번씩 나온다")
+    public void searchSliceScrollTest() {
+        Team teamS = new Team("teamS");
+        em.persist(teamS);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Member member = new Member("slice" + i, i % 2 == 0 ? 20 : 10, teamS); //나이가 같은 회원이 여럿
+            em.persist(member);
+            ids.add(member.getId());
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamS");
+        List<MemberTeamDto> scrolled = new ArrayList<>();
+        Slice<MemberTeamDto> slice = memberRepository.searchSlice(condition, PageRequest.of(0, 2, Sort.by("age")));
+        scrolled.addAll(slice.getContent());
+        while (slice.hasNext()) {
+            slice = memberRepository.searchSlice(condition, slice.nextPageable());
+            scrolled.addAll(slice.getContent());
+        }
+
+        assertThat(scrolled).extracting("memberId").containsExactlyInAnyOrderElementsOf(ids).doesNotHaveDuplicates();
+        assertThat(scrolled).extracting("age").isSorted();
+    }
+
+    @Test
+    @DisplayName("없는 팀 이름이면 빈 결과")
+    public void searchUnknownTeam() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamX");
+
+        assertThat(memberRepository.search(condition)).isEmpty();
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    @DisplayName("커서 기반 페이징으로 끝까지 이어서 조회")
+    public void searchByCursorTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 20, teamB));
+        em.persist(new Member("member5", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        MemberCursorPage first = memberRepository.searchByCursor(condition, null, 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member4");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberCursorPage second = memberRepository.searchByCursor(condition, MemberCursor.decode(first.getNextCursor()), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member1", "member3");
+        assertThat(second.isHasNext()).isTrue();
+
+        MemberCursorPage last = memberRepository.searchByCursor(condition, MemberCursor.decode(second.getNextCursor()), 2);
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("스트리밍 페이지는 searchPageComplex와 같은 행과 total을 넘긴다")
+    public void searchPageStreamTest() {
+        Team team = new Team("streamTeam");
+        em.persist(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("stream" + i, 10 + i, team));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("streamTeam");
+
+        for (int pageNumber = 0; pageNumber < 3; pageNumber++) {
+            PageRequest pageable = PageRequest.of(pageNumber, 2);
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, pageable);
+
+            List<MemberTeamDto> rows = new ArrayList<>();
+            StreamedPage streamed = memberRepository.searchPageStream(condition, pageable, 1, rows::add);
+
+            assertThat(rows).extracting("memberId").containsExactlyElementsOf(
+                    page.getContent().stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList()));
+            assertThat(streamed.getRows()).isEqualTo(page.getNumberOfElements());
+            assertThat(streamed.getTotalElements()).isEqualTo(page.getTotalElements());
+            assertThat(streamed.isHasNext()).isEqualTo(page.hasNext());
+        }
+    }
+
+    @Test
+    @DisplayName("앞뒤 공백이 있는 팀 이름도 스트리밍, 커서 조회가 페이지 조회와 같은 회원을 돌려준다")
+    public void searchNormalizedTest() {
+        Team team = new Team("teamA");
+        em.persist(team);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("member" + i, 10 + i, team));
+        }
+        em.persist(new Member("noTeam", 20));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(" teamA ");
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        memberRepository.searchPageStream(condition, PageRequest.of(0, 10), 1, streamed::add);
+        MemberCursorPage cursorPage = memberRepository.searchByCursor(condition, null, 10);
+
+        assertThat(page.getContent()).extracting("username").containsExactly("member0", "member1", "member2");
+        assertThat(streamed).extracting("memberId").containsExactlyElementsOf(
+                page.getContent().stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList()));
+        assertThat(cursorPage.getContent()).extracting("username").containsExactly("member0", "member1", "member2");
+    }
+
+    @Test
+    @DisplayName("정렬한 페이지는 id만 먼저 고르고, 같은 값끼리는 id 순서다")
+    public void searchPageSortTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamB));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 20));
+        em.persist(new Member("member5", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Sort sort = Sort.by(Sort.Order.desc("age"), Sort.Order.asc("team.name"));
+
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2, sort));
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2, sort));
+        Page<MemberTeamDto> last = memberRepository.searchPageComplex(condition, PageRequest.of(2, 2, sort));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member5");
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(last.getContent()).extracting("username").containsExactly("member2");
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        //팀 없는 회원은 팀 이름 asc에서 앞 (H2 기본)
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 2, Sort.by("team.name"))).getContent())
+                .extracting("username").containsExactly("member4", "member1");
+
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        memberRepository.searchPageStream(condition, PageRequest.of(1, 2, sort), 1, streamed::add);
+        assertThat(streamed).extracting("username").containsExactly("member3", "member4");
+
+        //id만 고르는 쿼리는 팀 이름 정렬일 때만 조인
+        MemberSearchShape shape = MemberSearchShape.of(condition);
+        assertThat(searchTemplates.idJpql(shape, MemberSort.orderSpecifiers(Sort.by("age"))))
+                .startsWith("select member1.id").doesNotContain("join").endsWith("order by member1.age asc, member1.id asc");
+        assertThat(searchTemplates.idJpql(shape, MemberSort.orderSpecifiers(sort))).contains("left join member1.team");
+    }
+
+    @Test
+    @DisplayName("정렬한 페이지는 팀 이름 캐시 미스까지 /v3 예산(4개) 안에서 끝난다")
+    public void searchPageSortStatementTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear(); //팀 이름 -> id도 DB에서 찾게
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        StatementScope scope = StatementScope.open("searchPageComplex");
+        Page<MemberTeamDto> page;
+        try {
+            page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2, Sort.by(Sort.Order.desc("age"))));
+        } finally {
+            scope.close();
+        }
+
+        assertThat(page.getContent()).extracting("username").containsExactly("member4", "member3");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        //id + 내용 + count + 팀 이름 캐시 미스 1
+        assertThat(scope.getTotal()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("정해둔 속성이 아니면 정렬하지 않고 예외")
+    public void searchPageUnknownSortTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 10, Sort.by("team.id"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("team.id");
+    }
+
     @Test
     @DisplayName("스프링데이터가 제공하는 Querydsl 사용하기")
     public void querydslPredicateExecutorTest(){
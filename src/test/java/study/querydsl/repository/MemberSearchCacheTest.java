@@ -0,0 +1,168 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 커밋된 뒤에 무효화되기 때문에 @Transactional 없이 테스트하고 끝나면 직접 지웁니다.
+ */
+@SpringBootTest
+class MemberSearchCacheTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamIdResolver teamIdResolver;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team cacheA = new Team("cacheA");
+            Team cacheB = new Team("cacheB");
+            em.persist(cacheA);
+            em.persist(cacheB);
+            em.persist(new Member("cache1", 10, cacheA));
+            em.persist(new Member("cache2", 20, cacheA));
+            em.persist(new Member("cache3", 30, cacheB));
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.username like 'cache%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'cache%'").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("같은 조건(공백만 다른 이름 포함)이면 캐시된 결과를 돌려준다")
+    public void hitTest() {
+        List<MemberTeamDto> first = memberRepository.search(condition("cacheA", null));
+        List<MemberTeamDto> second = memberRepository.search(condition(" cacheA ", null));
+
+        assertThat(first).hasSize(2);
+        assertThat(second).isSameAs(first);
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition("cacheA", null), PageRequest.of(0, 1));
+        assertThat(memberRepository.searchPageComplex(condition("cacheA", null), PageRequest.of(0, 1))).isSameAs(page);
+        assertThat(memberRepository.searchPageComplex(condition("cacheA", null), PageRequest.of(1, 1))).isNotSameAs(page);
+    }
+
+    @Test
+    @DisplayName("공백이 붙은 조건이 먼저 와도 정규화한 조건으로 조회해서 캐시한다")
+    public void normalizedFirstTest() {
+        assertThat(memberRepository.search(condition(" cacheB", null))).hasSize(1);
+        assertThat(memberRepository.search(condition("cacheB", null))).hasSize(1);
+
+        MemberSearchCondition username = condition(null, null);
+        username.setUsername("cache3 ");
+        assertThat(memberRepository.searchPageComplex(username, PageRequest.of(0, 10)).getContent())
+                .extracting("username").containsExactly("cache3");
+        username.setUsername("cache3");
+        assertThat(memberRepository.searchPageComplex(username, PageRequest.of(0, 10)).getContent())
+                .extracting("username").containsExactly("cache3");
+    }
+
+    @Test
+    @DisplayName("회원이 커밋되면 영향받는 팀/나이 범위의 항목만 지운다")
+    public void invalidateTest() {
+        List<MemberTeamDto> teamA = memberRepository.search(condition("cacheA", null));
+        List<MemberTeamDto> teamB = memberRepository.search(condition("cacheB", null));
+        List<MemberTeamDto> old = memberRepository.search(condition(null, 25));
+
+        tx.execute(status -> {
+            Team cacheA = em.createQuery("select t from Team t where t.name = 'cacheA'", Team.class).getSingleResult();
+            em.persist(new Member("cache4", 15, cacheA));
+            return null;
+        });
+
+        assertThat(memberRepository.search(condition("cacheA", null))).hasSize(3);
+        assertThat(memberRepository.search(condition("cacheB", null))).isSameAs(teamB); //다른 팀
+        assertThat(memberRepository.search(condition(null, 25))).isSameAs(old);         //나이 범위 밖
+
+        tx.execute(status -> {
+            Member member = em.createQuery("select m from Member m where m.username = 'cache1'", Member.class).getSingleResult();
+            member.setAge(40);
+            return null;
+        });
+
+        assertThat(memberRepository.search(condition(null, 25)))
+                .extracting("username")
+                .contains("cache1", "cache3");
+        assertThat(teamA).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("없는 팀이었던 조건은 그 이름의 팀이 생기면 지운다")
+    public void unknownTeamTest() {
+        assertThat(memberRepository.search(condition("cacheC", null))).isEmpty();
+
+        tx.execute(status -> {
+            Team cacheC = new Team("cacheC");
+            em.persist(cacheC);
+            em.persist(new Member("cache5", 50, cacheC));
+            return null;
+        });
+
+        assertThat(memberRepository.search(condition("cacheC", null))).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("없는 팀 이름은 기억해뒀다가 DB에 묻지 않고, 그 팀이 커밋되면 다시 찾는다")
+    public void unknownTeamNameTest() {
+        assertThat(teamIdResolver.resolve("cacheD")).isEmpty();
+
+        StatementScope scope = StatementScope.open("unknownTeamName");
+        try {
+            assertThat(teamIdResolver.resolve("cacheD")).isEmpty();
+        } finally {
+            scope.close();
+        }
+        assertThat(scope.getTotal()).isZero();
+
+        Team cacheD = tx.execute(status -> {
+            Team team = new Team("cacheD");
+            em.persist(team);
+            return team;
+        });
+
+        assertThat(teamIdResolver.resolve("cacheD")).contains(cacheD.getId());
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
@@ -0,0 +1,115 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitoring.StatementScope;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * count는 별도 커넥션에서 돌아서 커밋된 데이터만 보이니 @Transactional 없이 테스트합니다.
+ */
+@SpringBootTest
+class ParallelCountExecutorTest {
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ParallelCountExecutor executor;
+
+    @BeforeEach
+    public void before() {
+        executor = new ParallelCountExecutor(emf, searchTemplates, true, 1, 100);
+    }
+
+    @AfterEach
+    public void after() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("다른 스레드에서 돌린 병렬 count도 부른 쪽 StatementScope에 센다")
+    public void scopeTest() throws Exception {
+        StatementScope scope = StatementScope.open("parallelCount");
+        try {
+            Future<Long> count = executor.submit(binding());
+            assertThat(count).isNotNull();
+            count.get(5, TimeUnit.SECONDS);
+        } finally {
+            scope.close();
+        }
+
+        assertThat(scope.getTotal()).isEqualTo(1);
+        assertThat(scope.getStatements().keySet()).allMatch(sql -> sql.contains("count("));
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션 안이거나 꺼져있으면 동시에 세지 않는다")
+    public void skipTest() {
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        assertThat(write.execute(status -> executor.submit(binding()))).isNull();
+
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        Future<Long> count = read.execute(status -> executor.submit(binding()));
+        assertThat(count).isNotNull();
+        assertThat(executor.await(count, () -> -1L)).isNotNegative();
+
+        ParallelCountExecutor disabled = new ParallelCountExecutor(emf, searchTemplates, false, 1, 100);
+        try {
+            assertThat(disabled.submit(binding())).isNull();
+        } finally {
+            disabled.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("스레드가 모두 바쁘면 기다리지 않고 바로 거절한다")
+    public void rejectTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Long> busy = executor.submit(() -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0L;
+        });
+        try {
+            assertThat(busy).isNotNull();
+            assertThat(executor.submit(binding())).isNull();
+        } finally {
+            release.countDown();
+        }
+        busy.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("timeout 안에 안 끝나면 그 count는 취소하고 fallback으로 센다")
+    public void timeoutTest() {
+        CompletableFuture<Long> never = new CompletableFuture<>();
+
+        assertThat(executor.await(never, () -> 42L)).isEqualTo(42L);
+        assertThat(never.isCancelled()).isTrue();
+    }
+
+    private MemberSearchTemplates.Binding binding() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        return searchTemplates.bind(condition).get();
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 트랜잭션 안에서는 합치지 않으니 @Transactional 없이 테스트합니다.
+ */
+@SpringBootTest
+class SearchCoalescerTest {
+    @Autowired
+    SearchCoalescer coalescer;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Test
+    @DisplayName("같은 검색이 동시에 들어오면 한 번만 실행하고 같은 결과를 나눠 쓴다")
+    public void coalesceTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        Pageable pageable = PageRequest.of(0, 10);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.execute("test", condition, pageable, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new Object();
+            })));
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> coalescer.execute("test", condition, pageable, () -> {
+                    executions.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            Thread.sleep(200); //follower들이 기다리기 시작할 때까지
+            release.countDown();
+
+            Object first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(executions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("커밋 전에 시작한 검색에는 커밋 뒤에 들어온 요청이 붙지 않고, 그 결과도 캐시되지 않는다")
+    public void commitDuringFlightTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(77);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> searchCache.get("flight", condition, pageable,
+                    () -> coalescer.execute("flight", condition, pageable, () -> {
+                        started.countDown();
+                        await(release); //조회 도중
+                        return "before commit";
+                    })));
+            started.await(5, TimeUnit.SECONDS);
+
+            searchCache.invalidateAll("member"); //커밋 - MemberSearchCacheInvalidator가 부르는 것과 같음
+
+            Future<Object> follower = executor.submit(() -> searchCache.get("flight", condition, pageable,
+                    () -> coalescer.execute("flight", condition, pageable, () -> "after commit")));
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("after commit"); //leader를 기다리지 않음
+
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("before commit");
+            assertThat(searchCache.get("flight", condition, pageable, () -> "reloaded")).isEqualTo("after commit");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            searchCache.invalidateAll("test");
+        }
+    }
+
+    @Test
+    @DisplayName("끝난 검색은 다시 실행하고, 실패는 던진다")
+    public void notInFlightTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Object first = coalescer.execute("test", condition, Pageable.unpaged(), Object::new);
+        Object second = coalescer.execute("test", condition, Pageable.unpaged(), Object::new);
+        assertThat(second).isNotSameAs(first);
+
+        assertThatThrownBy(() -> coalescer.execute("test", condition, Pageable.unpaged(), () -> {
+            throw new IllegalStateException("fail");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamRepositoryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Test
+    @DisplayName("팀 페이지와 회원을 페이지 크기와 상관없이 정해진 쿼리 수로 가져온다")
+    public void findTeamsWithMembersTest() {
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("paged" + i);
+            em.persist(team);
+            for (int j = 0; j < i; j++) { //paged0은 회원 없음
+                em.persist(new Member("paged" + i + "-" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        for (int size : new int[]{2, 1000}) {
+            StatementScope scope = StatementScope.open("findTeamsWithMembers");
+            Map<String, Integer> memberCounts;
+            Page<Team> page;
+            try {
+                page = teamRepository.findTeamsWithMembers(PageRequest.of(0, size));
+                memberCounts = page.getContent().stream()
+                        .collect(Collectors.toMap(Team::getName, team -> team.getMembers().size()));
+            } finally {
+                scope.close();
+            }
+            assertThat(page.getContent()).hasSizeLessThanOrEqualTo(size);
+            assertThat(scope.getTotal()).isLessThanOrEqualTo(3);
+
+            if (size == 1000) {
+                assertThat(memberCounts).containsEntry("paged0", 0)
+                        .containsEntry("paged1", 1)
+                        .containsEntry("paged4", 4);
+            }
+            em.clear();
+        }
+    }
+}
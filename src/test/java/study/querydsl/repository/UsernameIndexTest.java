@@ -0,0 +1,178 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스는 커밋된 뒤에 반영되기 때문에 @Transactional 없이 테스트하고 끝나면 직접 지웁니다.
+ */
+@SpringBootTest
+class UsernameIndexTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            em.persist(new Member("ngram-alpha", 10));
+            em.persist(new Member("ngram-alphabet", 20));
+            em.persist(new Member("ngram-beta", 30));
+            em.persist(new Member("ngram_1", 40));
+            em.persist(new Member("ngramx1", 50));
+            return null;
+        });
+    }
+
+    /**
+     * 벌크 delete는 이벤트가 없어서 인덱스에 id가 남으니 엔티티로 지웁니다.
+     */
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("select m from Member m where m.username like 'ngram%'", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("PREFIX는 인덱스 후보 id로 좁혀서 찾는다")
+    public void prefixTest() {
+        Optional<Set<Long>> candidates = usernameIndex.candidates(UsernameMatch.PREFIX, "ngram-alpha");
+        assertThat(candidates).isPresent();
+        assertThat(candidates.get()).hasSize(2);
+
+        List<MemberTeamDto> result = memberRepository.search(condition("ngram-alpha", UsernameMatch.PREFIX));
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("ngram-alpha", "ngram-alphabet");
+        assertThat(result).extracting("memberId").containsExactlyInAnyOrderElementsOf(candidates.get());
+
+        assertThat(memberRepository.searchPageComplex(condition("ngram-alpha", UsernameMatch.PREFIX), PageRequest.of(0, 1))
+                .getTotalElements()).isEqualTo(2);
+        assertThat(memberRepository.searchByCursor(condition("ngram-alpha", UsernameMatch.PREFIX), null, 10).getContent())
+                .extracting("username").containsExactly("ngram-alpha", "ngram-alphabet");
+    }
+
+    @Test
+    @DisplayName("CONTAINS는 trigram으로 찾고, %와 _는 글자 그대로 찾는다")
+    public void containsTest() {
+        assertThat(memberRepository.search(condition("pha", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactlyInAnyOrder("ngram-alpha", "ngram-alphabet");
+        assertThat(memberRepository.search(condition("m_1", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("ngram_1");
+        assertThat(memberRepository.search(condition("ngram-alpha", UsernameMatch.EXACT)))
+                .extracting("username").containsExactly("ngram-alpha");
+
+        //2글자 이하는 인덱스 없이 like로만
+        assertThat(usernameIndex.candidates(UsernameMatch.CONTAINS, "x1")).isEmpty();
+        assertThat(memberRepository.search(condition("x1", UsernameMatch.CONTAINS)))
+                .extracting("username").contains("ngramx1");
+    }
+
+    @Test
+    @DisplayName("순수 JPA 레파지토리(/v1)도 회원명 검색 방식을 따른다")
+    public void jpaRepositoryTest() {
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{
+                condition("ngram-alpha", UsernameMatch.PREFIX), condition("m_1", UsernameMatch.CONTAINS), condition("x1", UsernameMatch.CONTAINS)}) {
+            List<MemberTeamDto> expected = memberRepository.search(condition);
+            assertThat(expected).isNotEmpty();
+
+            assertThat(memberJpaRepository.search(condition)).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberJpaRepository.searchByBuilder(condition)).extracting("username")
+                    .containsExactlyInAnyOrderElementsOf(usernames(expected));
+
+            List<MemberTeamDto> streamed = new ArrayList<>();
+            memberJpaRepository.searchStream(condition, 2, streamed::add);
+            assertThat(streamed).containsExactlyInAnyOrderElementsOf(expected);
+
+            List<MemberTeamDto> columns = new ArrayList<>();
+            MemberColumns.Cursor cursor = memberJpaRepository.searchColumns(condition, 2).cursor();
+            while (cursor.next()) {
+                columns.add(cursor.toDto());
+            }
+            assertThat(columns).containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(memberJpaRepository.searchColumns(condition("zzz", UsernameMatch.PREFIX), 2).size()).isZero();
+    }
+
+    @Test
+    @DisplayName("이름을 바꾸고 커밋하면 인덱스와 캐시된 검색 결과에 반영된다")
+    public void updateTest() {
+        assertThat(memberRepository.search(condition("ngram-alpha", UsernameMatch.PREFIX))).hasSize(2);
+        assertThat(memberRepository.search(condition("beta", UsernameMatch.CONTAINS))).hasSize(1);
+
+        tx.execute(status -> {
+            em.createQuery("select m from Member m where m.username = 'ngram-beta'", Member.class)
+                    .getSingleResult()
+                    .setUsername("ngram-alphaz");
+            return null;
+        });
+
+        assertThat(memberRepository.search(condition("ngram-alpha", UsernameMatch.PREFIX)))
+                .extracting("username").containsExactlyInAnyOrder("ngram-alpha", "ngram-alphabet", "ngram-alphaz");
+        assertThat(usernameIndex.candidates(UsernameMatch.CONTAINS, "beta").get()).isEmpty();
+        assertThat(memberRepository.search(condition("beta", UsernameMatch.CONTAINS))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("다시 만들어도 이벤트로 쌓은 인덱스와 같은 후보를 준다")
+    public void rebuildTest() {
+        Set<Long> prefix = usernameIndex.candidates(UsernameMatch.PREFIX, "ngram").get();
+        Set<Long> contains = usernameIndex.candidates(UsernameMatch.CONTAINS, "alpha").get();
+
+        usernameIndex.rebuild();
+
+        assertThat(usernameIndex.candidates(UsernameMatch.PREFIX, "ngram").get()).isEqualTo(prefix);
+        assertThat(usernameIndex.candidates(UsernameMatch.CONTAINS, "alpha").get()).isEqualTo(contains);
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> rows) {
+        List<String> usernames = new ArrayList<>();
+        for (MemberTeamDto row : rows) {
+            usernames.add(row.getUsername());
+        }
+        return usernames;
+    }
+
+    private MemberSearchCondition condition(String username, UsernameMatch match) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        return condition;
+    }
+}